@@ -0,0 +1,33 @@
+package org.learning.sprinbootapitrest.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Binary encodings for service-to-service callers, picked through the {@code Accept} header:
+ * <ul>
+ *     <li>{@code application/cbor}</li>
+ *     <li>{@code application/x-jackson-smile}</li>
+ * </ul>
+ * Both mappers come from the Boot-configured builder, so they share the JSON mapper settings.
+ * Spring Boot registers these converters after the JSON one, so JSON stays the default for
+ * {@code Accept: *}{@code /*} or a missing header.
+ */
+@Configuration
+public class BinaryMessageConvertersConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -3,30 +3,80 @@ package org.learning.sprinbootapitrest.persons;
 import lombok.RequiredArgsConstructor;
 import org.learning.sprinbootapitrest.persons.dto.PersonDTO;
 import org.learning.sprinbootapitrest.persons.dto.PersonName;
+import org.learning.sprinbootapitrest.persons.errors.InvalidFieldsException;
 import org.learning.sprinbootapitrest.persons.errors.PersonNotFoundException;
 import org.learning.sprinbootapitrest.persons.handlers.PersonExceptionHandlers;
+import org.learning.sprinbootapitrest.persons.projection.PersonField;
+import org.learning.sprinbootapitrest.persons.projection.PersonProjection;
+import org.learning.sprinbootapitrest.persons.storage.StorageStats;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 @RestController
 @RequiredArgsConstructor
 public class PersonController extends PersonExceptionHandlers {
+    /**
+     * GET /persons picks both the encoding (JSON, CBOR, Smile) and the compression from the request.
+     */
+    private static final String VARY_ON = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
     private final PersonRepository personRepository;
 
     @GetMapping("persons")
-    public ResponseEntity<?> getPersons() {
+    public ResponseEntity<?> getPersons(
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws InvalidFieldsException {
+        if (fields != null) {
+            Set<PersonField> projection = PersonField.parse(fields);
+            List<Person> personsList = personRepository.getAll();
+            return personsList.isEmpty() ?
+                    ResponseEntity.noContent().build() :
+                    ResponseEntity.ok()
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                            .body(PersonProjection.of(personsList, projection));
+        }
+        if (prefersJson(accept)) {
+            PersonsSnapshot snapshot = personRepository.getAllSnapshot();
+            if (snapshot.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, VARY_ON);
+            String coding = preferredCoding(acceptEncoding);
+            return coding == null ?
+                    response.body(snapshot.getJson()) :
+                    response.header(HttpHeaders.CONTENT_ENCODING, coding).body(snapshot.encodedWith(coding));
+        }
         List<Person> personsList = personRepository.getAll();
         return personsList.isEmpty() ?
                 ResponseEntity.noContent().build() :
-                ResponseEntity.ok(personsList);
+                ResponseEntity.ok()
+                        .header(HttpHeaders.VARY, VARY_ON)
+                        .body(personsList);
     }
 
     @GetMapping("persons/name/{name}")
-    public ResponseEntity<?> getPersonsByMatchingName(@PathVariable String name) {
+    public ResponseEntity<?> getPersonsByMatchingName(@PathVariable String name,
+                                                      @RequestParam(required = false) String fields)
+            throws InvalidFieldsException {
+        if (fields != null) {
+            Set<PersonField> projection = PersonField.parse(fields);
+            List<Person> personsList = personRepository.findPersonsByName(name);
+            return personsList.isEmpty() ?
+                    ResponseEntity.noContent().build() :
+                    ResponseEntity.ok(PersonProjection.of(personsList, projection));
+        }
         List<PersonDTO> personsDTOList = personRepository.findByName(name);
         return personsDTOList.size() != 0 ?
                 ResponseEntity.ok(personsDTOList) :
@@ -34,8 +84,19 @@ public class PersonController extends PersonExceptionHandlers {
     }
 
     @GetMapping("persons/{id}")
-    public PersonDTO getPerson(@PathVariable Integer id) throws PersonNotFoundException {
-        return personRepository.findById(id);
+    public ResponseEntity<?> getPerson(@PathVariable Integer id, @RequestParam(required = false) String fields)
+            throws PersonNotFoundException, InvalidFieldsException {
+        if (fields == null) {
+            return ResponseEntity.ok(personRepository.findById(id));
+        }
+        Set<PersonField> projection = PersonField.parse(fields);
+        Person person = personRepository.findOptionalById(id).orElseThrow(() -> new PersonNotFoundException(id));
+        return ResponseEntity.ok(PersonProjection.of(person, projection));
+    }
+
+    @GetMapping("persons/storage/stats")
+    public StorageStats getStorageStats() {
+        return personRepository.getStorageStats();
     }
 
     @PostMapping("persons")
@@ -63,4 +124,58 @@ public class PersonController extends PersonExceptionHandlers {
         personRepository.save(personName, id);
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
+
+    /**
+     * @return {@code gzip} or {@code deflate} when the client accepts one of them (gzip first), otherwise null
+     */
+    private static String preferredCoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        String deflate = null;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (isRefused(parts)) {
+                continue;
+            }
+            if (coding.equals("gzip")) {
+                return coding;
+            }
+            if (coding.equals("deflate")) {
+                deflate = coding;
+            }
+        }
+        return deflate;
+    }
+
+    /**
+     * @param parts a coding followed by its parameters, e.g. {@code gzip; Q = 0}
+     * @return whether the coding carries a zero quality value
+     */
+    private static boolean isRefused(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] parameter = parts[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q")) {
+                return parameter[1].trim().matches("0(\\.0{0,3})?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The snapshot is rendered as JSON only, so binary encodings (CBOR, Smile) must go through the converters.
+     */
+    private static boolean prefersJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            return mediaTypes.isEmpty() || mediaTypes.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
 }
@@ -1,58 +1,115 @@
 package org.learning.sprinbootapitrest.persons;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.NonNull;
 import org.learning.sprinbootapitrest.persons.dto.PersonDTO;
 import org.learning.sprinbootapitrest.persons.dto.PersonName;
 import org.learning.sprinbootapitrest.persons.errors.PersonNotFoundException;
+import org.learning.sprinbootapitrest.persons.errors.ReadOnlyReplicaException;
+import org.learning.sprinbootapitrest.persons.replication.PersonMutation;
+import org.learning.sprinbootapitrest.persons.replication.PersonMutationListener;
+import org.learning.sprinbootapitrest.persons.replication.ReplicationSnapshot;
+import org.learning.sprinbootapitrest.persons.storage.PersonTable;
+import org.learning.sprinbootapitrest.persons.storage.StorageStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Repository along with an in-memory list as if it were the actual DB to use our Controller with some data persistence
+ * Repository along with an in-memory table as if it were the actual DB to use our Controller with some data persistence
+ * <p>
+ * The table keeps at most {@code persons.storage.hot-capacity} persons on heap (unbounded by default)
+ * and spills the rest to a memory-mapped file under {@code persons.storage.cold-directory}.
+ * <p>
+ * Writes are serialized and numbered so they can be replicated: every applied write is handed,
+ * in order, to the registered {@link PersonMutationListener}s. A follower node marks the repository
+ * read-only and applies the leader's log through {@link #restore(ReplicationSnapshot)} and {@link #apply(PersonMutation)}.
+ *
+ * @see PersonTable
  */
 @Repository
 public class PersonRepository {
     private static final Logger log = LoggerFactory.getLogger(PersonRepository.class);
-    private List<Person> personList;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong version = new AtomicLong();
+    private final Object snapshotLock = new Object();
+    private volatile PersonsSnapshot snapshot;
+    private final SingleFlight<NameQuery, List<Person>> nameQueries = new SingleFlight<>();
+    private final PersonTable personTable;
+    private final Object writeLock = new Object();
+    private final List<PersonMutationListener> mutationListeners = new CopyOnWriteArrayList<>();
+    private long sequence;
+    private volatile boolean readOnly;
 
     public PersonRepository() {
+        this(new ObjectMapper(), Integer.MAX_VALUE, System.getProperty("java.io.tmpdir"));
+    }
+
+    @Autowired
+    public PersonRepository(ObjectMapper objectMapper,
+                            @Value("${persons.storage.hot-capacity:2147483647}") int hotCapacity,
+                            @Value("${persons.storage.cold-directory:${java.io.tmpdir}}") String coldDirectory) {
+        this(objectMapper, new PersonTable(hotCapacity, Path.of(coldDirectory)));
+    }
+
+    PersonRepository(ObjectMapper objectMapper, PersonTable personTable) {
+        this.objectMapper = objectMapper;
+        this.personTable = personTable;
         init();
     }
 
-    public PersonDTO save(@NonNull PersonDTO personDTO) {
-        Person person = new Person(generateConsecutiveId(), personDTO.getName(), personDTO.getAge());
-        this.personList.add(person);
+    public PersonDTO save(@NonNull PersonDTO personDTO) throws ReadOnlyReplicaException {
+        checkWritable();
+        PersonMutation mutation;
+        synchronized (writeLock) {
+            Person person = personTable.insert(id -> new Person(id, personDTO.getName(), personDTO.getAge()));
+            mutation = publish(PersonMutation.put(++sequence, person));
+        }
+        afterMutation(mutation);
         return personDTO;
     }
 
-    public PersonDTO save(@NonNull PersonDTO person, int id) throws PersonNotFoundException {
-        return findOptionalById(id)
-                .map(p ->
-                {
-                    p.setAge(person.getAge());
-                    p.setName(person.getName());
-                    return new PersonDTO(person.getName(), person.getAge());
-                })
-                .orElseThrow(() -> new PersonNotFoundException(id));
+    public PersonDTO save(@NonNull PersonDTO person, int id) throws PersonNotFoundException, ReadOnlyReplicaException {
+        checkWritable();
+        PersonMutation mutation;
+        synchronized (writeLock) {
+            Person updated = personTable.update(id, p -> {
+                p.setAge(person.getAge());
+                p.setName(person.getName());
+            }).orElseThrow(() -> new PersonNotFoundException(id));
+            mutation = publish(PersonMutation.put(++sequence, updated));
+        }
+        afterMutation(mutation);
+        return new PersonDTO(person.getName(), person.getAge());
     }
 
-    public PersonName save(@NonNull PersonName personName, int id) throws PersonNotFoundException {
-        return personList.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .map(p ->
-                {
-                    p.setName(personName.getName());
-                    return personName;
-                })
-                .orElseThrow(() -> new PersonNotFoundException(id));
+    public PersonName save(@NonNull PersonName personName, int id) throws PersonNotFoundException, ReadOnlyReplicaException {
+        checkWritable();
+        PersonMutation mutation;
+        synchronized (writeLock) {
+            Person updated = personTable.update(id, p -> p.setName(personName.getName()))
+                    .orElseThrow(() -> new PersonNotFoundException(id));
+            mutation = publish(PersonMutation.put(++sequence, updated));
+        }
+        afterMutation(mutation);
+        return personName;
     }
 
+    /**
+     * Not coalesced: an ID lookup is a single index probe, cheaper than joining a shared flight.
+     */
     public Optional<Person> findOptionalById(int id) {
-        return personList.stream().filter(p -> p.getId() == id).findFirst();
+        return personTable.get(id);
     }
 
     public PersonDTO findById(int id) throws PersonNotFoundException {
@@ -62,49 +119,201 @@ public class PersonRepository {
     }
 
     public List<PersonDTO> findByName(@NonNull String name) {
-        return personList
+        return findPersonsByName(name)
                 .stream()
-                .filter(p -> p.getName().equalsIgnoreCase(name))
                 .map(p -> new PersonDTO(p.getName(), p.getAge()))
                 .toList();
     }
 
-    public void deleteById(int id) throws PersonNotFoundException {
-        Person person = findOptionalById(id).orElseThrow(() -> new PersonNotFoundException(id));
-        this.personList.remove(person);
+    /**
+     * Concurrent lookups of the same name, ignoring case, against the same repository version share a single scan.
+     */
+    public List<Person> findPersonsByName(@NonNull String name) {
+        return nameQueries.execute(new NameQuery(name.toLowerCase(Locale.ROOT), version.get()),
+                () -> personTable.scan(p -> p.getName().equalsIgnoreCase(name)));
+    }
+
+    public void deleteById(int id) throws PersonNotFoundException, ReadOnlyReplicaException {
+        checkWritable();
+        PersonMutation mutation;
+        synchronized (writeLock) {
+            if (!personTable.remove(id)) {
+                throw new PersonNotFoundException(id);
+            }
+            mutation = publish(PersonMutation.delete(++sequence, id));
+        }
+        afterMutation(mutation);
     }
 
+    /**
+     * @return every person, in insertion order, as an unmodifiable list
+     */
     public List<Person> getAll() {
-        return personList;
+        return personTable.scan(p -> true);
+    }
+
+    /**
+     * @return hit ratio, cold-read latency and tier sizes of the person table
+     */
+    public StorageStats getStorageStats() {
+        return personTable.stats();
+    }
+
+    public void addMutationListener(@NonNull PersonMutationListener listener) {
+        mutationListeners.add(listener);
+    }
+
+    public void removeMutationListener(@NonNull PersonMutationListener listener) {
+        mutationListeners.remove(listener);
+    }
+
+    /**
+     * Copies the table for a follower catching up.
+     *
+     * @param registration run under the write lock right after the copy, so a listener registered there
+     *                     receives exactly the mutations that come after the snapshot
+     * @return the copy along with the sequence of the last mutation it includes
+     */
+    public ReplicationSnapshot takeReplicationSnapshot(@NonNull Runnable registration) {
+        synchronized (writeLock) {
+            List<Person> persons = getAll()
+                    .stream()
+                    .map(p -> new Person(p.getId(), p.getName(), p.getAge()))
+                    .toList();
+            registration.run();
+            return new ReplicationSnapshot(sequence, persons);
+        }
+    }
+
+    /**
+     * Replaces the whole table with the leader's snapshot.
+     */
+    public void restore(@NonNull ReplicationSnapshot snapshot) {
+        synchronized (writeLock) {
+            personTable.clear();
+            snapshot.getPersons().forEach(personTable::put);
+            sequence = snapshot.getSequence();
+            version.incrementAndGet();
+        }
     }
 
     /**
-     * As we are using in-memory list, we need to handle the consecutive IDs
+     * Applies one entry of the leader's mutation log. Entries already applied are skipped.
+     */
+    public void apply(@NonNull PersonMutation mutation) {
+        synchronized (writeLock) {
+            if (mutation.getSequence() <= sequence) {
+                return;
+            }
+            if (mutation.getType() == PersonMutation.Type.DELETE) {
+                personTable.remove(mutation.getId());
+            } else {
+                personTable.put(mutation.toPerson());
+            }
+            sequence = mutation.getSequence();
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the sequence of the last applied mutation
+     */
+    public long getSequence() {
+        synchronized (writeLock) {
+            return sequence;
+        }
+    }
+
+    /**
+     * Followers are read-only: writes throw {@link ReadOnlyReplicaException} and only the leader's log changes the table.
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Serialized and precompressed rendering of {@link #getAll()}.
      * <p>
-     * If the list is not empty it will find the max ID value and add 1.
-     * If the list is empty it will create an object, not referenced (to be deleted by gc)
-     * and return the id + 1.
+     * Every mutation bumps the repository version. The snapshot is rebuilt lazily, at most once
+     * per version, even when many requests ask for it at the same time. The version is read before
+     * serializing, so a mutation that races with the rebuild leaves a stale stamp and triggers
+     * another rebuild on the next call.
      *
-     * @return the consecutive ID integer number
+     * @return the snapshot matching the current version
      */
-    private int generateConsecutiveId() {
-        return this.personList
-                .stream()
-                .max(Comparator.comparingInt(Person::getId))
-                .orElse(new Person(0, "", 0))
-                .getId() + 1;
+    public PersonsSnapshot getAllSnapshot() {
+        PersonsSnapshot current = snapshot;
+        if (current != null && current.getVersion() == version.get()) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            long stamp = version.get();
+            current = snapshot;
+            if (current == null || current.getVersion() != stamp) {
+                List<Person> persons = getAll();
+                current = PersonsSnapshot.of(stamp, persons.size(), serialize(persons));
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private byte[] serialize(List<Person> persons) {
+        try {
+            return objectMapper.writeValueAsBytes(persons);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Persons snapshot cannot be serialized", e);
+        }
+    }
+
+    private void checkWritable() throws ReadOnlyReplicaException {
+        if (readOnly) {
+            throw new ReadOnlyReplicaException();
+        }
+    }
+
+    /**
+     * Must be called under the write lock, right after the table has changed.
+     */
+    private PersonMutation publish(PersonMutation mutation) {
+        version.incrementAndGet();
+        mutationListeners.forEach(listener -> listener.onMutation(mutation));
+        return mutation;
+    }
+
+    private void afterMutation(PersonMutation mutation) {
+        mutationListeners.forEach(listener -> listener.afterMutation(mutation));
     }
 
     /**
-     * Starting our in-memory list as if it were our H2 or preferred DB.
+     * Starting our in-memory table as if it were our H2 or preferred DB.
      */
     public void init() {
-        this.personList = Collections.synchronizedList(new ArrayList<>());
-        personList.add(new Person(1, "Laura", 30));
-        personList.add(new Person(2, "Mariano", 21));
-        personList.add(new Person(3, "Paopalo", 19));
-        personList.add(new Person(4, "Yamoto", 60));
+        synchronized (writeLock) {
+            personTable.clear();
+            personTable.put(new Person(1, "Laura", 30));
+            personTable.put(new Person(2, "Mariano", 21));
+            personTable.put(new Person(3, "Paopalo", 19));
+            personTable.put(new Person(4, "Yamoto", 60));
+            sequence = 0;
+            version.incrementAndGet();
+        }
 
-        log.info("List of person has been created: " + this.personList);
+        log.info("List of person has been created: " + getAll());
+    }
+
+    /**
+     * Releases the cold segment file, if any person was ever evicted.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        personTable.close();
+    }
+
+    /**
+     * Coalescing key carrying the repository version: once a mutation has landed, new callers
+     * start a fresh scan instead of joining one that may have read the old data.
+     */
+    private record NameQuery(String name, long version) {
     }
 }
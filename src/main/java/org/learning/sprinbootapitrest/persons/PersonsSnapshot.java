@@ -0,0 +1,51 @@
+package org.learning.sprinbootapitrest.persons;
+
+import lombok.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized rendering of the whole persons list, stamped with the repository version it was built from.
+ * <p>
+ * The JSON body is kept as-is and precompressed for the {@code gzip} and {@code deflate} content codings,
+ * so a request for the full collection is just a byte write.
+ */
+@Value
+public class PersonsSnapshot {
+    long version;
+    int size;
+    byte[] json;
+    byte[] gzip;
+    byte[] deflate;
+
+    public static PersonsSnapshot of(long version, int size, byte[] json) {
+        return new PersonsSnapshot(version, size, json, compress(json, true), compress(json, false));
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param coding {@code gzip} or {@code deflate}
+     * @return the body encoded with the given content coding
+     */
+    public byte[] encodedWith(String coding) {
+        return "gzip".equals(coding) ? gzip : deflate;
+    }
+
+    private static byte[] compress(byte[] data, boolean gzip) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package org.learning.sprinbootapitrest.persons;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical computations: the first caller for a key runs the loader,
+ * callers arriving while it is in flight wait for and share its result (or its exception).
+ * <p>
+ * Nothing is cached once the computation finishes, the next caller starts a new flight.
+ * Keys should carry whatever makes a result stale (e.g. the repository version).
+ *
+ * @param <K> the query key
+ * @param <V> the shared result
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    V execute(K key, Supplier<V> loader) {
+        Flight<V> flight = inFlight.get(key);
+        if (flight == null) {
+            Flight<V> task = new Flight<>(loader);
+            flight = inFlight.putIfAbsent(key, task);
+            if (flight == null) {
+                try {
+                    task.run();
+                } finally {
+                    inFlight.remove(key, task);
+                }
+                return await(task);
+            }
+        }
+        onJoin(key);
+        return await(flight);
+    }
+
+    /**
+     * Called when a caller joins a computation already in flight, right before it waits. A no-op, tests override it
+     * to know when a follower is parked; the leader path never calls it.
+     */
+    void onJoin(K key) {
+    }
+
+    private V await(Flight<V> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared computation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static final class Flight<V> extends FutureTask<V> {
+        private Flight(Supplier<V> loader) {
+            super(loader::get);
+        }
+    }
+}
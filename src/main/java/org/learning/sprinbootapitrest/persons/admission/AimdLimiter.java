@@ -0,0 +1,82 @@
+package org.learning.sprinbootapitrest.persons.admission;
+
+/**
+ * Concurrency limit adapting to observed latency with additive increase / multiplicative decrease.
+ * <ul>
+ *     <li>a request slower than the target latency shrinks the limit by {@code backoffRatio}, at most once per
+ *     round trip: only a request that started after the previous backoff can trigger the next one, so a burst of
+ *     slow requests that were all in flight together counts as a single congestion signal</li>
+ *     <li>a request within the target grows it by {@code 1 / limit}, about +1 per limit-full of requests,
+ *     but only while the limit is actually used (at least half of it in flight)</li>
+ * </ul>
+ */
+class AimdLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private double limit;
+    private int inFlight;
+    private boolean backedOff;
+    private long lastBackoffNanos;
+
+    AimdLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos, double backoffRatio) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max but were %d <= %d <= %d"
+                    .formatted(minLimit, initialLimit, maxLimit));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return true when the request may proceed, it must then call {@link #release(long)} once done
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    void release(long latencyNanos) {
+        release(latencyNanos, System.nanoTime());
+    }
+
+    /**
+     * @param nowNanos {@link System#nanoTime()} when the request completed
+     */
+    synchronized void release(long latencyNanos, long nowNanos) {
+        boolean saturated = inFlight * 2 >= limit;
+        inFlight--;
+        if (latencyNanos > targetLatencyNanos) {
+            long startNanos = nowNanos - latencyNanos;
+            if (!backedOff || startNanos - lastBackoffNanos >= 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                backedOff = true;
+                lastBackoffNanos = nowNanos;
+            }
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * @return whether the in-flight requests use at least the given share of the current limit
+     */
+    synchronized boolean isBusy(double utilization) {
+        return inFlight >= limit * utilization;
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,157 @@
+package org.learning.sprinbootapitrest.persons.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.learning.sprinbootapitrest.persons.errors.ErrorApi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of {@link org.learning.sprinbootapitrest.persons.PersonController}.
+ * <p>
+ * Each kind of endpoint (writes, point reads, scans) has its own {@link AimdLimiter}, with its own target
+ * latency: a full-list scan is legitimately slower than a point read, so judging it against the point-read target
+ * would keep the scan limit pinned at its minimum. Writes and point reads fall back to
+ * {@code persons.admission.target-latency-millis}, scans have a separate default.
+ * Scans are the cheapest to give up: they are also shed while writes or point reads are busy.
+ * Requests are matched on the same lookup path Spring MVC maps them with, so {@code ;} path parameters
+ * or duplicated slashes cannot slip a request past the limiters.
+ * A request that is not admitted gets a 503 with {@code Retry-After} right away instead of queueing in Tomcat,
+ * so admitted requests keep their latency under overload.
+ * <p>
+ * Disabled with {@code persons.admission.enabled=false}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "persons.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PersonAdmissionFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(PersonAdmissionFilter.class);
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * <ul>
+     *     <li>WRITE: every non-GET request</li>
+     *     <li>POINT_READ: {@code GET /persons/{id}}, an index probe, and {@code GET /persons/storage/stats},
+     *     a few counters read under the table read lock</li>
+     *     <li>SCAN: {@code GET /persons} and {@code GET /persons/name/{name}}, both walk the whole table
+     *     and decode every cold record</li>
+     * </ul>
+     */
+    enum EndpointKind {WRITE, POINT_READ, SCAN}
+
+    private final ObjectMapper objectMapper;
+    private final AimdLimiter writes;
+    private final AimdLimiter pointReads;
+    private final AimdLimiter scans;
+    private final double scanYieldUtilization;
+    private final String retryAfterSeconds;
+
+    /**
+     * @param writeTargetLatencyMillis     latency above which the write limit backs off
+     * @param pointReadTargetLatencyMillis latency above which the point-read limit backs off
+     * @param scanTargetLatencyMillis      latency above which the scan limit backs off
+     * @param scanYieldUtilization         scans are shed while writes or point reads use at least this share of their limit
+     */
+    @Autowired
+    public PersonAdmissionFilter(ObjectMapper objectMapper,
+                                 @Value("${persons.admission.initial-limit:20}") int initialLimit,
+                                 @Value("${persons.admission.min-limit:1}") int minLimit,
+                                 @Value("${persons.admission.max-limit:200}") int maxLimit,
+                                 @Value("${persons.admission.write-target-latency-millis:${persons.admission.target-latency-millis:100}}")
+                                 long writeTargetLatencyMillis,
+                                 @Value("${persons.admission.point-read-target-latency-millis:${persons.admission.target-latency-millis:100}}")
+                                 long pointReadTargetLatencyMillis,
+                                 @Value("${persons.admission.scan-target-latency-millis:1000}") long scanTargetLatencyMillis,
+                                 @Value("${persons.admission.scan-yield-utilization:0.75}") double scanYieldUtilization,
+                                 @Value("${persons.admission.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.objectMapper = objectMapper;
+        this.writes = new AimdLimiter(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(writeTargetLatencyMillis), BACKOFF_RATIO);
+        this.pointReads = new AimdLimiter(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(pointReadTargetLatencyMillis), BACKOFF_RATIO);
+        this.scans = new AimdLimiter(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(scanTargetLatencyMillis), BACKOFF_RATIO);
+        this.scanYieldUtilization = scanYieldUtilization;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = lookupPath(request);
+        return !(path.equals("/persons") || path.startsWith("/persons/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointKind kind = classify(request);
+        AimdLimiter limiter = limiterFor(kind);
+        if (!admit(kind, limiter)) {
+            reject(kind, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    static EndpointKind classify(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return EndpointKind.WRITE;
+        }
+        String path = lookupPath(request);
+        boolean scan = path.equals("/persons") || path.equals("/persons/") || path.startsWith("/persons/name/");
+        return scan ? EndpointKind.SCAN : EndpointKind.POINT_READ;
+    }
+
+    /**
+     * Path within the application without {@code ;} parameters, decoded and with duplicated slashes merged.
+     */
+    private static String lookupPath(HttpServletRequest request) {
+        return UrlPathHelper.defaultInstance.getLookupPathForRequest(request);
+    }
+
+    private AimdLimiter limiterFor(EndpointKind kind) {
+        return switch (kind) {
+            case WRITE -> writes;
+            case POINT_READ -> pointReads;
+            case SCAN -> scans;
+        };
+    }
+
+    private boolean admit(EndpointKind kind, AimdLimiter limiter) {
+        if (kind == EndpointKind.SCAN
+                && (writes.isBusy(scanYieldUtilization) || pointReads.isBusy(scanYieldUtilization))) {
+            return false;
+        }
+        return limiter.tryAcquire();
+    }
+
+    private void reject(EndpointKind kind, HttpServletResponse response) throws IOException {
+        log.debug("Shedding {} request, limits: writes={} pointReads={} scans={}",
+                kind, writes.getLimit(), pointReads.getLimit(), scans.getLimit());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorApi(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent requests, please retry later."));
+    }
+}
@@ -1,6 +1,7 @@
 package org.learning.sprinbootapitrest.persons.errors;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.*;
 import org.springframework.http.HttpStatus;
 
@@ -13,14 +14,16 @@ import java.time.LocalDateTime;
 public class ErrorApi {
     @NonNull
     private HttpStatus status;
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy hh:mm:ss")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = ErrorTimestamps.PATTERN)
+    @JsonSerialize(using = ErrorDateTimeSerializer.class)
     @Builder.Default
-    private LocalDateTime dateTime = LocalDateTime.now();
+    private LocalDateTime dateTime = ErrorTimestamps.now();
     @NonNull
     private String message;
 
     public ErrorApi(HttpStatus status, String message) {
         this.status = status;
+        this.dateTime = ErrorTimestamps.now();
         this.message = message;
     }
 }
@@ -0,0 +1,24 @@
+package org.learning.sprinbootapitrest.persons.errors;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Writes {@link ErrorApi#getDateTime()} with the same pattern as its {@code @JsonFormat},
+ * reusing the text rendered once per second by {@link ErrorTimestamps}.
+ */
+public class ErrorDateTimeSerializer extends StdSerializer<LocalDateTime> {
+
+    public ErrorDateTimeSerializer() {
+        super(LocalDateTime.class);
+    }
+
+    @Override
+    public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeString(ErrorTimestamps.format(value));
+    }
+}
@@ -0,0 +1,49 @@
+package org.learning.sprinbootapitrest.persons.errors;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Second-resolution clock for {@link ErrorApi}.
+ * <p>
+ * The error payload only renders seconds, so the same {@link LocalDateTime}, and its rendered text,
+ * is shared by every error raised within that second instead of asking the system clock,
+ * the zone rules and the formatter each time.
+ */
+final class ErrorTimestamps {
+    static final String PATTERN = "dd-MM-yyyy hh:mm:ss";
+    static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN);
+
+    private static volatile Tick last = new Tick(Long.MIN_VALUE, null, null);
+
+    private ErrorTimestamps() {
+    }
+
+    static LocalDateTime now() {
+        return tick().dateTime;
+    }
+
+    /**
+     * @return the text of the given date time, cached for the current second
+     */
+    static String format(LocalDateTime dateTime) {
+        Tick tick = last;
+        return tick.dateTime == dateTime ? tick.formatted : FORMATTER.format(dateTime);
+    }
+
+    private static Tick tick() {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        Tick tick = last;
+        if (tick.epochSecond != epochSecond) {
+            LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+            tick = new Tick(epochSecond, dateTime, FORMATTER.format(dateTime));
+            last = tick;
+        }
+        return tick;
+    }
+
+    private record Tick(long epochSecond, LocalDateTime dateTime, String formatted) {
+    }
+}
@@ -0,0 +1,14 @@
+package org.learning.sprinbootapitrest.persons.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a {@code fields} projection names an attribute a person does not have.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFieldsException extends RuntimeException {
+    public InvalidFieldsException(String fields) {
+        super("Fields '" + fields + "' are not valid! Use a comma separated list of: id, name, age.", null, false, false);
+    }
+}
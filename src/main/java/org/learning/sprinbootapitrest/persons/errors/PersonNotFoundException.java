@@ -3,9 +3,27 @@ package org.learning.sprinbootapitrest.persons.errors;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+/**
+ * Thrown when no person matches the requested ID.
+ * <p>
+ * It is a plain "not found" signal, so it skips the stack trace and builds its message lazily:
+ * a burst of 404s should not cost a stack walk and a formatted string each.
+ */
 @ResponseStatus(HttpStatus.NOT_FOUND)
 public class PersonNotFoundException extends RuntimeException {
+    private final int id;
+
     public PersonNotFoundException(int id) {
-        super("Person with id '%d' cannot be found! It may not exists.".formatted(id));
+        super(null, null, false, false);
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Person with id '" + id + "' cannot be found! It may not exists.";
     }
 }
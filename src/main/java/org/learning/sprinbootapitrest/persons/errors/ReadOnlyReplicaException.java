@@ -0,0 +1,14 @@
+package org.learning.sprinbootapitrest.persons.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a write reaches a follower node, only the leader accepts writes.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ReadOnlyReplicaException extends RuntimeException {
+    public ReadOnlyReplicaException() {
+        super("This node is a read-only follower! Send writes to the leader.", null, false, false);
+    }
+}
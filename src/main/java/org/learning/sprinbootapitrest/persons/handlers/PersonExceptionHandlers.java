@@ -2,7 +2,9 @@ package org.learning.sprinbootapitrest.persons.handlers;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
 import org.learning.sprinbootapitrest.persons.errors.ErrorApi;
+import org.learning.sprinbootapitrest.persons.errors.InvalidFieldsException;
 import org.learning.sprinbootapitrest.persons.errors.PersonNotFoundException;
+import org.learning.sprinbootapitrest.persons.errors.ReadOnlyReplicaException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,19 +23,27 @@ public class PersonExceptionHandlers {
     public ResponseEntity<ErrorApi> HandlerPersonNotFound(PersonNotFoundException exception) {
         return ResponseEntity
                 .status(HttpStatus.NOT_FOUND)
-                .body(ErrorApi.builder()
-                        .status(HttpStatus.NOT_FOUND)
-                        .message(exception.getMessage())
-                        .build());
+                .body(new ErrorApi(HttpStatus.NOT_FOUND, exception.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<ErrorApi> HandleInvalidFields(InvalidFieldsException exception) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorApi(HttpStatus.BAD_REQUEST, exception.getMessage()));
+    }
+
+    @ExceptionHandler(ReadOnlyReplicaException.class)
+    public ResponseEntity<ErrorApi> HandleReadOnlyReplica(ReadOnlyReplicaException exception) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new ErrorApi(HttpStatus.CONFLICT, exception.getMessage()));
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorApi> HandleValidationExceptions(MethodArgumentNotValidException exception) {
         return ResponseEntity
                 .status(HttpStatus.BAD_REQUEST)
-                .body(ErrorApi.builder()
-                        .status(HttpStatus.BAD_REQUEST)
-                        .message(exception.getMessage())
-                        .build());
+                .body(new ErrorApi(HttpStatus.BAD_REQUEST, exception.getMessage()));
     }
 }
@@ -0,0 +1,86 @@
+package org.learning.sprinbootapitrest.persons.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.learning.sprinbootapitrest.persons.Person;
+import org.learning.sprinbootapitrest.persons.errors.InvalidFieldsException;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Person attributes that can be asked for through the {@code fields} query parameter.
+ */
+public enum PersonField {
+    ID("id") {
+        @Override
+        void write(Person person, JsonGenerator generator) throws IOException {
+            writeNumber(person.getId(), generator);
+        }
+    },
+    NAME("name") {
+        @Override
+        void write(Person person, JsonGenerator generator) throws IOException {
+            generator.writeString(person.getName());
+        }
+    },
+    AGE("age") {
+        @Override
+        void write(Person person, JsonGenerator generator) throws IOException {
+            writeNumber(person.getAge(), generator);
+        }
+    };
+
+    private final String fieldName;
+
+    PersonField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Writes only the value of this attribute, the field name is written by the caller.
+     */
+    abstract void write(Person person, JsonGenerator generator) throws IOException;
+
+    /**
+     * Parses a comma separated list of attribute names such as {@code name,id}.
+     *
+     * @param fields the raw query parameter
+     * @return the requested attributes, in declaration order
+     * @throws InvalidFieldsException when the list is blank or names an unknown attribute
+     */
+    public static Set<PersonField> parse(String fields) throws InvalidFieldsException {
+        EnumSet<PersonField> requested = EnumSet.noneOf(PersonField.class);
+        for (String token : fields.split(",")) {
+            String name = token.trim().toLowerCase(Locale.ROOT);
+            PersonField field = fromFieldName(name);
+            if (field == null) {
+                throw new InvalidFieldsException(fields);
+            }
+            requested.add(field);
+        }
+        return requested;
+    }
+
+    private static PersonField fromFieldName(String name) {
+        for (PersonField field : values()) {
+            if (field.fieldName.equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static void writeNumber(Integer value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.learning.sprinbootapitrest.persons.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import lombok.NonNull;
+import org.learning.sprinbootapitrest.persons.Person;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes only the requested {@link PersonField}s of stored persons, straight into the response generator.
+ * <p>
+ * It wraps the stored {@link Person} objects as they are: no DTO or map is built per person,
+ * and it works for any Jackson encoding the client negotiated (JSON, CBOR, Smile).
+ */
+public class PersonProjection extends JsonSerializable.Base {
+    private final List<Person> persons;
+    private final boolean single;
+    private final Set<PersonField> fields;
+
+    private PersonProjection(List<Person> persons, boolean single, Set<PersonField> fields) {
+        this.persons = persons;
+        this.single = single;
+        this.fields = fields;
+    }
+
+    public static PersonProjection of(@NonNull Person person, @NonNull Set<PersonField> fields) {
+        return new PersonProjection(List.of(person), true, fields);
+    }
+
+    public static PersonProjection of(@NonNull List<Person> persons, @NonNull Set<PersonField> fields) {
+        return new PersonProjection(persons, false, fields);
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (single) {
+            writePerson(persons.get(0), generator);
+            return;
+        }
+        generator.writeStartArray();
+        for (Person person : persons) {
+            writePerson(person, generator);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Projections are never written with polymorphic type information, the plain shape is used.
+     */
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer)
+            throws IOException {
+        serialize(generator, provider);
+    }
+
+    private void writePerson(Person person, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (PersonField field : fields) {
+            generator.writeFieldName(field.getFieldName());
+            field.write(person, generator);
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,33 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import lombok.Value;
+import org.learning.sprinbootapitrest.persons.Person;
+
+/**
+ * One entry of the ordered mutation log a leader streams to its followers.
+ * <p>
+ * Creates, updates and name patches are all shipped as a {@link Type#PUT} of the resulting person,
+ * so applying an entry twice leaves the follower in the same state.
+ */
+@Value
+public class PersonMutation {
+    public enum Type {PUT, DELETE}
+
+    long sequence;
+    Type type;
+    int id;
+    String name;
+    Integer age;
+
+    public static PersonMutation put(long sequence, Person person) {
+        return new PersonMutation(sequence, Type.PUT, person.getId(), person.getName(), person.getAge());
+    }
+
+    public static PersonMutation delete(long sequence, int id) {
+        return new PersonMutation(sequence, Type.DELETE, id, null, null);
+    }
+
+    public Person toPerson() {
+        return new Person(id, name, age);
+    }
+}
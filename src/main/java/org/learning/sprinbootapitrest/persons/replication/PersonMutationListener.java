@@ -0,0 +1,21 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+/**
+ * Receives every mutation applied by the repository, in sequence order.
+ *
+ * @see org.learning.sprinbootapitrest.persons.PersonRepository#addMutationListener(PersonMutationListener)
+ */
+public interface PersonMutationListener {
+
+    /**
+     * Called while the repository write lock is held, so it must only hand the mutation over (e.g. enqueue it).
+     */
+    void onMutation(PersonMutation mutation);
+
+    /**
+     * Called once the write lock is released and before the write returns to its caller, so it may block
+     * (e.g. waiting for followers to acknowledge it).
+     */
+    default void afterMutation(PersonMutation mutation) {
+    }
+}
@@ -0,0 +1,138 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Leader side of one follower connection: a writer thread streaming the snapshot and then the queued mutations,
+ * and a reader thread collecting the follower's acknowledgements.
+ * <p>
+ * The queue is bounded: a follower that falls too far behind is disconnected instead of growing the leader's heap,
+ * it reconnects and catches up from a fresh snapshot.
+ */
+class ReplicaSession implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaSession.class);
+
+    private final Socket socket;
+    private final BlockingQueue<PersonMutation> pending;
+    private final Object ackMonitor = new Object();
+    private long acknowledged = -1;
+    private volatile boolean closed;
+    private Thread writer;
+
+    ReplicaSession(Socket socket, int maxPendingMutations) {
+        this.socket = socket;
+        this.pending = new LinkedBlockingQueue<>(maxPendingMutations);
+    }
+
+    /**
+     * Queues a mutation for this follower, never blocks. Closes the session when the queue is full.
+     */
+    void enqueue(PersonMutation mutation) {
+        if (closed || pending.offer(mutation)) {
+            return;
+        }
+        log.warn("Follower {} is more than {} mutations behind, disconnecting it so it resyncs from a snapshot",
+                socket.getRemoteSocketAddress(), pending.size());
+        close();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void start(ReplicationSnapshot snapshot, Consumer<ReplicaSession> onClose) {
+        writer = new Thread(() -> {
+            try {
+                stream(snapshot);
+            } catch (IOException | InterruptedException e) {
+                if (!closed) {
+                    log.warn("Replication to follower {} stopped: {}", socket.getRemoteSocketAddress(), e.toString());
+                }
+            } finally {
+                onClose.accept(this);
+                close();
+            }
+        }, "replica-writer-" + socket.getPort());
+        Thread reader = new Thread(this::readAcks, "replica-acks-" + socket.getPort());
+        writer.setDaemon(true);
+        reader.setDaemon(true);
+        writer.start();
+        reader.start();
+    }
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} after which to give up, shared by all the sessions of one write
+     * @return false when the follower has not acknowledged the sequence by the deadline, or has disconnected
+     */
+    boolean awaitAcknowledged(long sequence, long deadlineNanos) throws InterruptedException {
+        synchronized (ackMonitor) {
+            while (acknowledged < sequence && !closed) {
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(ackMonitor, remaining);
+            }
+            return acknowledged >= sequence;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        // wakes the writer up if it is waiting for the next mutation
+        if (writer != null) {
+            writer.interrupt();
+        }
+        synchronized (ackMonitor) {
+            ackMonitor.notifyAll();
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Follower socket could not be closed", e);
+        }
+    }
+
+    private void stream(ReplicationSnapshot snapshot) throws IOException, InterruptedException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        ReplicationProtocol.writeSnapshot(out, snapshot);
+        out.flush();
+        while (!closed) {
+            PersonMutation mutation = pending.take();
+            ReplicationProtocol.writeMutation(out, mutation);
+            // keep writing without flushing while a burst of mutations is queued
+            if (pending.isEmpty()) {
+                out.flush();
+            }
+        }
+    }
+
+    private void readAcks() {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (!closed) {
+                long sequence = ReplicationProtocol.readAck(in);
+                synchronized (ackMonitor) {
+                    acknowledged = Math.max(acknowledged, sequence);
+                    ackMonitor.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import org.learning.sprinbootapitrest.persons.PersonRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Starts the leader or follower side of the replication depending on {@code persons.replication.role},
+ * nothing is started for the default standalone role.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class ReplicationConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "persons.replication", name = "role", havingValue = "leader")
+    public ReplicationLeader replicationLeader(PersonRepository personRepository, ReplicationProperties properties) {
+        return new ReplicationLeader(personRepository, properties.getBindAddress(), properties.getPort(),
+                properties.getConsistency(), properties.getAckTimeout(), properties.getMaxPendingMutations());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "persons.replication", name = "role", havingValue = "follower")
+    public ReplicationFollower replicationFollower(PersonRepository personRepository, ReplicationProperties properties) {
+        return new ReplicationFollower(personRepository, properties.getLeaderHost(), properties.getLeaderPort(),
+                properties.getReconnectDelay());
+    }
+}
@@ -0,0 +1,102 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import org.learning.sprinbootapitrest.persons.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+
+/**
+ * Connects to the leader, applies its snapshot and then its mutation log to the local repository,
+ * acknowledging each applied entry. Reads are served locally, writes are refused while following.
+ * <p>
+ * On disconnect, a corrupted stream or a failure applying an entry it keeps reconnecting
+ * and catches up again from a fresh snapshot, so the node never stays read-only on stale data.
+ */
+public class ReplicationFollower implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    private final PersonRepository personRepository;
+    private final String leaderHost;
+    private final int leaderPort;
+    private final Duration reconnectDelay;
+    private volatile Socket socket;
+    private volatile boolean closed;
+
+    public ReplicationFollower(PersonRepository personRepository, String leaderHost, int leaderPort,
+                               Duration reconnectDelay) {
+        this.personRepository = personRepository;
+        this.leaderHost = leaderHost;
+        this.leaderPort = leaderPort;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    public void start() {
+        personRepository.setReadOnly(true);
+        Thread follower = new Thread(this::follow, "replication-follower");
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void follow() {
+        while (!closed) {
+            try (Socket connection = new Socket(leaderHost, leaderPort)) {
+                connection.setTcpNoDelay(true);
+                socket = connection;
+                log.info("Following leader {}:{}", leaderHost, leaderPort);
+                replicate(connection);
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                log.warn("Lost leader {}:{}, retrying in {}: {}", leaderHost, leaderPort, reconnectDelay, e.toString());
+            } catch (RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                log.error("Replication from leader {}:{} failed, resyncing in {}", leaderHost, leaderPort, reconnectDelay, e);
+            }
+            try {
+                Thread.sleep(reconnectDelay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void replicate(Socket connection) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        while (!closed) {
+            Object frame = ReplicationProtocol.readFrame(in);
+            long sequence;
+            if (frame instanceof ReplicationSnapshot snapshot) {
+                personRepository.restore(snapshot);
+                sequence = snapshot.getSequence();
+                log.info("Caught up with the leader at sequence {}", sequence);
+            } else {
+                PersonMutation mutation = (PersonMutation) frame;
+                personRepository.apply(mutation);
+                sequence = mutation.getSequence();
+            }
+            ReplicationProtocol.writeAck(out, sequence);
+        }
+    }
+}
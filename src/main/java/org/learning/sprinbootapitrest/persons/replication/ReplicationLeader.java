@@ -0,0 +1,129 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import org.learning.sprinbootapitrest.persons.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Accepts followers over TCP and streams them the repository's ordered mutation log.
+ * <p>
+ * A new follower first receives a snapshot of the table; it is taken under the repository write lock together
+ * with the follower registration, so the mutations streamed afterwards continue exactly where the snapshot stops.
+ * With {@link ReplicationProperties.Consistency#ACK} a write only returns once every connected follower
+ * has applied it, or the ack timeout has elapsed (the write is kept on the leader either way).
+ * <p>
+ * The stream is neither authenticated nor encrypted, so the leader only listens on the given bind address
+ * (loopback by default) rather than on every interface.
+ */
+public class ReplicationLeader implements PersonMutationListener, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLeader.class);
+    private static final int BACKLOG = 50;
+
+    private final PersonRepository personRepository;
+    private final InetAddress bindAddress;
+    private final int port;
+    private final ReplicationProperties.Consistency consistency;
+    private final Duration ackTimeout;
+    private final int maxPendingMutations;
+    private final List<ReplicaSession> sessions = new CopyOnWriteArrayList<>();
+    private ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    public ReplicationLeader(PersonRepository personRepository, InetAddress bindAddress, int port,
+                             ReplicationProperties.Consistency consistency, Duration ackTimeout,
+                             int maxPendingMutations) {
+        this.personRepository = personRepository;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.consistency = consistency;
+        this.ackTimeout = ackTimeout;
+        this.maxPendingMutations = maxPendingMutations;
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, BACKLOG, bindAddress);
+        personRepository.addMutationListener(this);
+        Thread acceptor = new Thread(this::acceptFollowers, "replication-leader");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Replication leader listening on {}:{} ({} consistency)",
+                bindAddress.getHostAddress(), getPort(), consistency);
+    }
+
+    /**
+     * @return the port followers connect to, useful when started on port 0
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getFollowerCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public void onMutation(PersonMutation mutation) {
+        sessions.forEach(session -> session.enqueue(mutation));
+    }
+
+    @Override
+    public void afterMutation(PersonMutation mutation) {
+        if (consistency != ReplicationProperties.Consistency.ACK) {
+            return;
+        }
+        // one deadline for the whole write, so N stalled followers still cost a single ack timeout
+        long deadline = System.nanoTime() + ackTimeout.toNanos();
+        for (ReplicaSession session : sessions) {
+            try {
+                if (!session.awaitAcknowledged(mutation.getSequence(), deadline)) {
+                    log.warn("A follower did not acknowledge mutation {} within {}", mutation.getSequence(), ackTimeout);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        personRepository.removeMutationListener(this);
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        sessions.forEach(ReplicaSession::close);
+        sessions.clear();
+    }
+
+    private void acceptFollowers() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                ReplicaSession session = new ReplicaSession(socket, maxPendingMutations);
+                ReplicationSnapshot snapshot = personRepository.takeReplicationSnapshot(() -> sessions.add(session));
+                session.start(snapshot, sessions::remove);
+                log.info("Follower {} connected, catching up from sequence {}",
+                        socket.getRemoteSocketAddress(), snapshot.getSequence());
+            } catch (SocketException e) {
+                if (!closed) {
+                    log.error("Replication leader stopped accepting followers", e);
+                }
+                return;
+            } catch (IOException e) {
+                log.warn("Follower connection failed: {}", e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.InetAddress;
+import java.time.Duration;
+
+/**
+ * {@code persons.replication.*} settings, e.g. for two nodes on the same machine:
+ * <pre>
+ * # leader
+ * persons.replication.role=leader
+ * persons.replication.bind-address=127.0.0.1
+ * persons.replication.port=7070
+ * persons.replication.consistency=ack
+ * # follower (with its own server.port)
+ * persons.replication.role=follower
+ * persons.replication.leader-host=localhost
+ * persons.replication.leader-port=7070
+ * </pre>
+ */
+@Data
+@ConfigurationProperties(prefix = "persons.replication")
+public class ReplicationProperties {
+    public enum Role {STANDALONE, LEADER, FOLLOWER}
+
+    public enum Consistency {
+        /**
+         * Writes return as soon as the leader has applied them.
+         */
+        ASYNC,
+        /**
+         * Writes return once every connected follower has applied them, or the ack timeout has elapsed.
+         */
+        ACK
+    }
+
+    private Role role = Role.STANDALONE;
+    /**
+     * Address the leader listens on for followers, loopback by default. Replication traffic is plain TCP,
+     * only widen it on a trusted network.
+     */
+    private InetAddress bindAddress = InetAddress.getLoopbackAddress();
+    /**
+     * Port the leader listens on for followers.
+     */
+    private int port = 7070;
+    private String leaderHost = "localhost";
+    private int leaderPort = 7070;
+    private Consistency consistency = Consistency.ASYNC;
+    private Duration ackTimeout = Duration.ofSeconds(2);
+    /**
+     * Mutations the leader queues per follower before disconnecting it, so it resyncs from a snapshot.
+     */
+    private int maxPendingMutations = 10_000;
+    private Duration reconnectDelay = Duration.ofSeconds(1);
+}
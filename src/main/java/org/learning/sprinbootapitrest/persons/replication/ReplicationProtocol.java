@@ -0,0 +1,127 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import org.learning.sprinbootapitrest.persons.Person;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary frames exchanged between a leader and its followers over TCP.
+ * <p>
+ * Leader to follower: {@code 'S' sequence count person*} once, then {@code 'M' sequence type person|id} per mutation.
+ * Follower to leader: the {@code sequence} of each snapshot or mutation it has applied.
+ * <p>
+ * Names are written as {@code length:int} followed by their UTF-8 bytes, {@code writeUTF} would refuse
+ * names longer than 65535 encoded bytes.
+ */
+final class ReplicationProtocol {
+    private static final byte SNAPSHOT = 'S';
+    private static final byte MUTATION = 'M';
+    // the snapshot list grows from here, so a corrupted count cannot allocate a huge array up front
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+    private static final PersonMutation.Type[] MUTATION_TYPES = PersonMutation.Type.values();
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeSnapshot(DataOutputStream out, ReplicationSnapshot snapshot) throws IOException {
+        out.writeByte(SNAPSHOT);
+        out.writeLong(snapshot.getSequence());
+        out.writeInt(snapshot.getPersons().size());
+        for (Person person : snapshot.getPersons()) {
+            writePerson(out, person.getId(), person.getName(), person.getAge());
+        }
+    }
+
+    static void writeMutation(DataOutputStream out, PersonMutation mutation) throws IOException {
+        out.writeByte(MUTATION);
+        out.writeLong(mutation.getSequence());
+        out.writeByte(mutation.getType().ordinal());
+        if (mutation.getType() == PersonMutation.Type.DELETE) {
+            out.writeInt(mutation.getId());
+        } else {
+            writePerson(out, mutation.getId(), mutation.getName(), mutation.getAge());
+        }
+    }
+
+    /**
+     * @return a {@link ReplicationSnapshot} or a {@link PersonMutation}
+     * @throws StreamCorruptedException when the frame, a mutation type or a length is invalid
+     */
+    static Object readFrame(DataInputStream in) throws IOException {
+        byte frame = in.readByte();
+        long sequence = in.readLong();
+        if (frame == SNAPSHOT) {
+            int count = in.readInt();
+            if (count < 0) {
+                throw new StreamCorruptedException("Negative snapshot size " + count);
+            }
+            List<Person> persons = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+            for (int i = 0; i < count; i++) {
+                persons.add(readPerson(in));
+            }
+            return new ReplicationSnapshot(sequence, persons);
+        }
+        if (frame == MUTATION) {
+            byte ordinal = in.readByte();
+            if (ordinal < 0 || ordinal >= MUTATION_TYPES.length) {
+                throw new StreamCorruptedException("Unknown mutation type " + ordinal);
+            }
+            PersonMutation.Type type = MUTATION_TYPES[ordinal];
+            if (type == PersonMutation.Type.DELETE) {
+                return PersonMutation.delete(sequence, in.readInt());
+            }
+            return PersonMutation.put(sequence, readPerson(in));
+        }
+        throw new StreamCorruptedException("Unknown replication frame '" + frame + "'");
+    }
+
+    static void writeAck(DataOutputStream out, long sequence) throws IOException {
+        out.writeLong(sequence);
+        out.flush();
+    }
+
+    static long readAck(DataInputStream in) throws IOException {
+        return in.readLong();
+    }
+
+    private static void writePerson(DataOutputStream out, int id, String name, Integer age) throws IOException {
+        out.writeInt(id);
+        out.writeBoolean(name != null);
+        if (name != null) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeBoolean(age != null);
+        if (age != null) {
+            out.writeInt(age);
+        }
+    }
+
+    private static Person readPerson(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        String name = in.readBoolean() ? readString(in) : null;
+        Integer age = in.readBoolean() ? in.readInt() : null;
+        return new Person(id, name, age);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new StreamCorruptedException("Negative string length " + length);
+        }
+        // read in chunks rather than trusting the length with a single allocation
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("String truncated after " + bytes.length + " of " + length + " bytes");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
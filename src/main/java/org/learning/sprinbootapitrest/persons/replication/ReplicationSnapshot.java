@@ -0,0 +1,16 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import lombok.Value;
+import org.learning.sprinbootapitrest.persons.Person;
+
+import java.util.List;
+
+/**
+ * Copy of the whole person table together with the sequence of the last mutation it includes,
+ * used to catch up a follower before streaming the mutations that come after it.
+ */
+@Value
+public class ReplicationSnapshot {
+    long sequence;
+    List<Person> persons;
+}
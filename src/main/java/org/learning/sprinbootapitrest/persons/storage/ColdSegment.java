@@ -0,0 +1,196 @@
+package org.learning.sprinbootapitrest.persons.storage;
+
+import org.learning.sprinbootapitrest.persons.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped file holding the persons evicted from the hot set.
+ * <p>
+ * Records are laid out as {@code [id:int][age:int][flags:byte][nameLength:int][name:UTF-8]} in blocks whose
+ * capacity is rounded up to a power of two. A record is rewritten in place while it fits in its block,
+ * otherwise the block is released and the record moves to another one. Released blocks are kept in one
+ * free list per size class and handed out before the segment grows, so deletes and outgrown rewrites do not
+ * leak space; {@link #deadBytes()} reports what is currently free. The file is scratch space and is deleted
+ * on {@link #close()}.
+ * <p>
+ * A location is packed in a {@code long} as {@code offset << 32 | capacity}, so callers keep no object per record.
+ * <p>
+ * Not thread-safe: {@link PersonTable} calls {@link #copy(long)} under its read lock
+ * and every other method under its write lock.
+ */
+class ColdSegment implements Closeable {
+    static final long NO_LOCATION = -1;
+    private static final int HEADER_SIZE = Integer.BYTES * 3 + 1;
+    private static final int NAME_LENGTH_OFFSET = Integer.BYTES * 2 + 1;
+    private static final int MIN_SIZE_CLASS = 4;
+    private static final int MAX_SIZE_CLASS = 30;
+    private static final byte AGE_IS_NULL = 1;
+    private static final byte NAME_IS_NULL = 2;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int[][] freeOffsets = new int[MAX_SIZE_CLASS + 1][0];
+    private final int[] freeCounts = new int[MAX_SIZE_CLASS + 1];
+    private MappedByteBuffer buffer;
+    private int end;
+    private long deadBytes;
+
+    ColdSegment(Path directory, int initialCapacity) {
+        try {
+            this.file = Files.createTempFile(directory, "persons-", ".cold");
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, initialCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cold segment cannot be created in " + directory, e);
+        }
+    }
+
+    /**
+     * Stores the person, in place when it fits in the previous block, otherwise in a free or a new block.
+     *
+     * @param previous where the person was stored before, or {@link #NO_LOCATION}
+     * @return where the person is stored now
+     */
+    long store(Person person, long previous) {
+        byte[] name = person.getName() == null ? new byte[0] : person.getName().getBytes(StandardCharsets.UTF_8);
+        int size = HEADER_SIZE + name.length;
+        if (previous != NO_LOCATION && size <= capacity(previous)) {
+            write(person, name, offset(previous));
+            return previous;
+        }
+        release(previous);
+        int sizeClass = sizeClass(size);
+        int offset = freeCounts[sizeClass] > 0 ? takeFree(sizeClass) : append(1 << sizeClass);
+        write(person, name, offset);
+        return location(offset, 1 << sizeClass);
+    }
+
+    /**
+     * Gives the block back to its free list, a no-op for {@link #NO_LOCATION}.
+     */
+    void release(long location) {
+        if (location == NO_LOCATION) {
+            return;
+        }
+        int capacity = capacity(location);
+        int sizeClass = Integer.numberOfTrailingZeros(capacity);
+        if (freeCounts[sizeClass] == freeOffsets[sizeClass].length) {
+            freeOffsets[sizeClass] = Arrays.copyOf(freeOffsets[sizeClass], Math.max(8, freeCounts[sizeClass] * 2));
+        }
+        freeOffsets[sizeClass][freeCounts[sizeClass]++] = offset(location);
+        deadBytes += capacity;
+    }
+
+    /**
+     * Copies the raw record, so it can be decoded with {@link #decode(byte[])} without holding any lock.
+     */
+    byte[] copy(long location) {
+        int offset = offset(location);
+        byte[] record = new byte[HEADER_SIZE + buffer.getInt(offset + NAME_LENGTH_OFFSET)];
+        buffer.get(offset, record);
+        return record;
+    }
+
+    static Person decode(byte[] record) {
+        ByteBuffer in = ByteBuffer.wrap(record);
+        int id = in.getInt();
+        int age = in.getInt();
+        byte flags = in.get();
+        int nameLength = in.getInt();
+        String name = (flags & NAME_IS_NULL) == 0
+                ? new String(record, HEADER_SIZE, nameLength, StandardCharsets.UTF_8)
+                : null;
+        return new Person(id, name, (flags & AGE_IS_NULL) == 0 ? age : null);
+    }
+
+    long sizeInBytes() {
+        return end;
+    }
+
+    /**
+     * Bytes held by released blocks, waiting in the free lists.
+     */
+    long deadBytes() {
+        return deadBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private void write(Person person, byte[] name, int offset) {
+        byte flags = 0;
+        if (person.getAge() == null) {
+            flags |= AGE_IS_NULL;
+        }
+        if (person.getName() == null) {
+            flags |= NAME_IS_NULL;
+        }
+        buffer.putInt(offset, person.getId());
+        buffer.putInt(offset + Integer.BYTES, person.getAge() == null ? 0 : person.getAge());
+        buffer.put(offset + Integer.BYTES * 2, flags);
+        buffer.putInt(offset + NAME_LENGTH_OFFSET, name.length);
+        buffer.put(offset + HEADER_SIZE, name);
+    }
+
+    private int takeFree(int sizeClass) {
+        deadBytes -= 1 << sizeClass;
+        return freeOffsets[sizeClass][--freeCounts[sizeClass]];
+    }
+
+    private int append(int capacity) {
+        ensureCapacity((long) end + capacity);
+        int offset = end;
+        end += capacity;
+        return offset;
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Cold segment cannot grow past 2GB");
+        }
+        long capacity = Math.min(Math.max(required, (long) buffer.capacity() * 2), Integer.MAX_VALUE);
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cold segment cannot grow to " + capacity + " bytes", e);
+        }
+    }
+
+    private static int sizeClass(int size) {
+        int sizeClass = Math.max(MIN_SIZE_CLASS, Integer.SIZE - Integer.numberOfLeadingZeros(size - 1));
+        if (sizeClass > MAX_SIZE_CLASS) {
+            throw new IllegalArgumentException("Person record of " + size + " bytes does not fit in the cold segment");
+        }
+        return sizeClass;
+    }
+
+    private static long location(int offset, int capacity) {
+        return (long) offset << 32 | capacity;
+    }
+
+    private static int offset(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int capacity(long location) {
+        return (int) location;
+    }
+}
@@ -0,0 +1,187 @@
+package org.learning.sprinbootapitrest.persons.storage;
+
+import java.util.Arrays;
+
+/**
+ * Insertion-ordered map from person ID to a {@code long} reference, kept in primitive arrays.
+ * <p>
+ * Entries are appended to parallel {@code ids}/{@code refs} arrays and found through an open-addressed
+ * (linear probing) table of entry positions, so a person costs about 20 bytes on heap instead of a map entry,
+ * a boxed key and a value object. Removed entries leave a hole in the arrays that is squeezed out
+ * once holes outnumber the live entries.
+ * <p>
+ * Not thread-safe, {@link PersonTable} guards it with its lock.
+ */
+final class IdIndex {
+    static final long ABSENT = Long.MIN_VALUE;
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private long[] refs = new long[INITIAL_CAPACITY];
+    private int[] table = emptyTable(INITIAL_CAPACITY * 2);
+    private int end;
+    private int size;
+
+    /**
+     * @return the reference stored for the ID, {@link #ABSENT} when there is none
+     */
+    long get(int id) {
+        int slot = slotOf(id);
+        return slot == EMPTY ? ABSENT : refs[table[slot]];
+    }
+
+    /**
+     * Stores the reference, keeping the insertion position when the ID is already there.
+     */
+    void put(int id, long ref) {
+        int slot = slotOf(id);
+        if (slot != EMPTY) {
+            refs[table[slot]] = ref;
+            return;
+        }
+        if (end == ids.length) {
+            if (end - size > size) {
+                compact();
+            } else {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+                refs = Arrays.copyOf(refs, refs.length * 2);
+            }
+        }
+        ids[end] = id;
+        refs[end] = ref;
+        size++;
+        if (size * 2 > table.length) {
+            end++;
+            rebuildTable();
+        } else {
+            insertIntoTable(end++);
+        }
+    }
+
+    /**
+     * @return the removed reference, {@link #ABSENT} when there was none
+     */
+    long remove(int id) {
+        int slot = slotOf(id);
+        if (slot == EMPTY) {
+            return ABSENT;
+        }
+        int position = table[slot];
+        long ref = refs[position];
+        refs[position] = ABSENT;
+        size--;
+        deleteFromTable(slot);
+        return ref;
+    }
+
+    /**
+     * Walks the live entries, 0 when there is none.
+     */
+    int maxId() {
+        int max = 0;
+        for (int position = 0; position < end; position++) {
+            if (refs[position] != ABSENT) {
+                max = Math.max(max, ids[position]);
+            }
+        }
+        return max;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Exclusive upper bound of the positions to walk with {@link #refAt(int)}, in insertion order.
+     */
+    int end() {
+        return end;
+    }
+
+    /**
+     * @return the reference at the position, {@link #ABSENT} for a removed entry
+     */
+    long refAt(int position) {
+        return refs[position];
+    }
+
+    void clear() {
+        ids = new int[INITIAL_CAPACITY];
+        refs = new long[INITIAL_CAPACITY];
+        table = emptyTable(INITIAL_CAPACITY * 2);
+        end = 0;
+        size = 0;
+    }
+
+    private int slotOf(int id) {
+        int mask = table.length - 1;
+        for (int slot = home(id, mask); ; slot = (slot + 1) & mask) {
+            int position = table[slot];
+            if (position == EMPTY || ids[position] == id) {
+                return position == EMPTY ? EMPTY : slot;
+            }
+        }
+    }
+
+    private void insertIntoTable(int position) {
+        int mask = table.length - 1;
+        int slot = home(ids[position], mask);
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position;
+    }
+
+    /**
+     * Backward-shift deletion, so lookups never need tombstones.
+     */
+    private void deleteFromTable(int hole) {
+        int mask = table.length - 1;
+        for (int next = (hole + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask) {
+            int home = home(ids[table[next]], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private void compact() {
+        int live = 0;
+        for (int position = 0; position < end; position++) {
+            if (refs[position] != ABSENT) {
+                ids[live] = ids[position];
+                refs[live] = refs[position];
+                live++;
+            }
+        }
+        end = live;
+        rebuildTable();
+    }
+
+    private void rebuildTable() {
+        int capacity = INITIAL_CAPACITY * 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        table = emptyTable(capacity);
+        for (int position = 0; position < end; position++) {
+            if (refs[position] != ABSENT) {
+                insertIntoTable(position);
+            }
+        }
+    }
+
+    private static int home(int id, int mask) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int[] emptyTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+}
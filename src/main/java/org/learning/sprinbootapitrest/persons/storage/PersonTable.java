@@ -0,0 +1,440 @@
+package org.learning.sprinbootapitrest.persons.storage;
+
+import org.learning.sprinbootapitrest.persons.Person;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Person table split in two tiers:
+ * <ul>
+ *     <li>hot: up to {@code hotCapacity} {@link Person} objects kept on heap, in a ring of frames</li>
+ *     <li>cold: the rest, spilled to a memory-mapped {@link ColdSegment} and read back on demand</li>
+ * </ul>
+ * Every person has an entry in an {@link IdIndex}, a primitive map that keeps the insertion order
+ * and points either to a hot frame or to the person's location in the cold segment,
+ * so a cold person costs no object on heap.
+ * <p>
+ * When the hot set is full a clock hand sweeps the frames, decrementing their access counters (capped at
+ * {@value #MAX_FREQUENCY}), and evicts the first person whose counter is already zero. Eviction is amortized O(1)
+ * and persons that were popular a long time ago lose their counters as the hand passes them.
+ * ID lookups promote cold persons back to the hot set, scans read them without promoting.
+ * <p>
+ * Reads take a read lock, writes and promotions the write lock. Cold records are only copied
+ * under the read lock and decoded after it is released.
+ */
+public class PersonTable implements Closeable {
+    private static final int INITIAL_SEGMENT_CAPACITY = 64 * 1024;
+    private static final int INITIAL_FRAMES = 16;
+    private static final int MAX_FREQUENCY = 3;
+
+    private final int hotCapacity;
+    private final Path coldDirectory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IdIndex index = new IdIndex();
+    private HotFrame[] frames = new HotFrame[0];
+    private int[] freeFrames = new int[0];
+    private int freeFrameCount;
+    private int usedFrames;
+    private int hotSize;
+    private int clockHand;
+    private int maxId;
+    private ColdSegment coldSegment;
+    private long coldWrites;
+
+    private final LongAdder hotHits = new LongAdder();
+    private final LongAdder coldMisses = new LongAdder();
+    private final LongAdder coldReads = new LongAdder();
+    private final LongAdder coldReadNanos = new LongAdder();
+    private final AtomicLong maxColdReadNanos = new AtomicLong();
+
+    /**
+     * @param hotCapacity   how many persons are kept on heap, at least 1
+     * @param coldDirectory where the cold segment file is created, the first time a person is evicted
+     */
+    public PersonTable(int hotCapacity, Path coldDirectory) {
+        if (hotCapacity < 1) {
+            throw new IllegalArgumentException("Hot capacity must be at least 1 but was " + hotCapacity);
+        }
+        this.hotCapacity = hotCapacity;
+        this.coldDirectory = coldDirectory;
+    }
+
+    /**
+     * Adds a new person with the next consecutive ID.
+     * <p>
+     * The ID is the max ID in the table + 1 (1 for an empty table), taken under the write lock
+     * so concurrent inserts cannot get the same ID. Like the list the table replaced, the ID of a deleted
+     * person is given again when it was the highest one.
+     * <p>
+     * The max ID is tracked on every put, only deleting the person holding it walks the index to find the next one.
+     *
+     * @param factory builds the person for the given ID
+     * @return the inserted person
+     */
+    public Person insert(IntFunction<Person> factory) {
+        lock.writeLock().lock();
+        try {
+            return putLocked(factory.apply(maxId + 1));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a person, or replaces the one with the same ID.
+     *
+     * @return the stored person
+     */
+    public Person put(Person person) {
+        lock.writeLock().lock();
+        try {
+            return putLocked(person);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ID lookup, promotes the person to the hot set when it was cold.
+     */
+    public Optional<Person> get(int id) {
+        long ref;
+        long coldWritesSeen;
+        byte[] record;
+        lock.readLock().lock();
+        try {
+            ref = index.get(id);
+            if (ref == IdIndex.ABSENT) {
+                return Optional.empty();
+            }
+            if (isHot(ref)) {
+                return Optional.of(hit(frames[frameOf(ref)]).person);
+            }
+            record = coldSegment.copy(ref);
+            coldWritesSeen = coldWrites;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Person decoded = decode(record);
+        lock.writeLock().lock();
+        try {
+            long current = index.get(id);
+            if (current == IdIndex.ABSENT) {
+                return Optional.empty();
+            }
+            if (isHot(current)) {
+                return Optional.of(hit(frames[frameOf(current)]).person);
+            }
+            // nothing was written to the segment since the copy, so the decoded record is still current
+            Person person = current == ref && coldWrites == coldWritesSeen ? decoded : decode(coldSegment.copy(current));
+            coldMisses.increment();
+            return Optional.of(promote(person, current).person);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Changes a person in place.
+     *
+     * @return the changed person, empty when there is no person with that ID
+     */
+    public Optional<Person> update(int id, Consumer<Person> change) {
+        lock.writeLock().lock();
+        try {
+            long ref = index.get(id);
+            if (ref == IdIndex.ABSENT) {
+                return Optional.empty();
+            }
+            // not an ID lookup, so neither a hit nor a miss in the stats
+            HotFrame frame = isHot(ref) ? frames[frameOf(ref)] : promote(decode(coldSegment.copy(ref)), ref);
+            frame.touch();
+            change.accept(frame.person);
+            frame.dirty = true;
+            return Optional.of(frame.person);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(int id) {
+        lock.writeLock().lock();
+        try {
+            long ref = index.remove(id);
+            if (ref == IdIndex.ABSENT) {
+                return false;
+            }
+            long coldLocation = isHot(ref) ? freeFrame(frameOf(ref)).coldCopy : ref;
+            if (coldLocation != ColdSegment.NO_LOCATION) {
+                coldSegment.release(coldLocation);
+            }
+            if (id == maxId) {
+                maxId = index.maxId();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Persons matching the filter, in insertion order. Cold persons are read but not promoted.
+     *
+     * @return an unmodifiable list
+     */
+    public List<Person> scan(Predicate<Person> filter) {
+        // hot persons already matched, and raw cold records still to decode and match, in insertion order
+        List<Object> rows;
+        lock.readLock().lock();
+        try {
+            rows = new ArrayList<>(index.size());
+            for (int position = 0, end = index.end(); position < end; position++) {
+                long ref = index.refAt(position);
+                if (ref == IdIndex.ABSENT) {
+                    continue;
+                }
+                if (isHot(ref)) {
+                    Person person = frames[frameOf(ref)].person;
+                    if (filter.test(person)) {
+                        rows.add(person);
+                    }
+                } else {
+                    rows.add(coldSegment.copy(ref));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Person> matching = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            if (row instanceof Person person) {
+                matching.add(person);
+            } else {
+                Person person = decode((byte[]) row);
+                if (filter.test(person)) {
+                    matching.add(person);
+                }
+            }
+        }
+        return Collections.unmodifiableList(matching);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            frames = new HotFrame[0];
+            freeFrames = new int[0];
+            freeFrameCount = 0;
+            usedFrames = 0;
+            hotSize = 0;
+            clockHand = 0;
+            maxId = 0;
+            closeColdSegment();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public StorageStats stats() {
+        lock.readLock().lock();
+        try {
+            long hits = hotHits.sum();
+            long misses = coldMisses.sum();
+            long reads = coldReads.sum();
+            long lookups = hits + misses;
+            return new StorageStats(
+                    hotCapacity,
+                    hotSize,
+                    index.size() - hotSize,
+                    hits,
+                    misses,
+                    lookups == 0 ? 1.0 : (double) hits / lookups,
+                    reads,
+                    reads == 0 ? 0.0 : coldReadNanos.sum() / 1_000.0 / reads,
+                    maxColdReadNanos.get() / 1_000.0,
+                    coldSegment == null ? 0 : coldSegment.sizeInBytes(),
+                    coldSegment == null ? 0 : coldSegment.deadBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        clear();
+    }
+
+    private Person putLocked(Person person) {
+        maxId = Math.max(maxId, person.getId());
+        long ref = index.get(person.getId());
+        if (ref != IdIndex.ABSENT && isHot(ref)) {
+            HotFrame frame = frames[frameOf(ref)];
+            frame.person = person;
+            frame.dirty = true;
+            frame.touch();
+            return person;
+        }
+        int frame = allocateFrame(new HotFrame(person, ref == IdIndex.ABSENT ? ColdSegment.NO_LOCATION : ref, true));
+        index.put(person.getId(), hotRef(frame));
+        return person;
+    }
+
+    private HotFrame hit(HotFrame frame) {
+        hotHits.increment();
+        frame.touch();
+        return frame;
+    }
+
+    /**
+     * Moves a cold person to the hot set, keeping its cold block so a clean eviction needs no write.
+     */
+    private HotFrame promote(Person person, long coldLocation) {
+        HotFrame frame = new HotFrame(person, coldLocation, false);
+        index.put(person.getId(), hotRef(allocateFrame(frame)));
+        return frame;
+    }
+
+    private int allocateFrame(HotFrame hotFrame) {
+        if (hotSize >= hotCapacity) {
+            evictOne();
+        }
+        int frame;
+        if (freeFrameCount > 0) {
+            frame = freeFrames[--freeFrameCount];
+        } else {
+            if (usedFrames == frames.length) {
+                int length = (int) Math.min(hotCapacity, Math.max(INITIAL_FRAMES, frames.length * 2L));
+                frames = Arrays.copyOf(frames, length);
+                freeFrames = Arrays.copyOf(freeFrames, length);
+            }
+            frame = usedFrames++;
+        }
+        frames[frame] = hotFrame;
+        hotSize++;
+        return frame;
+    }
+
+    private HotFrame freeFrame(int frame) {
+        HotFrame hotFrame = frames[frame];
+        frames[frame] = null;
+        freeFrames[freeFrameCount++] = frame;
+        hotSize--;
+        return hotFrame;
+    }
+
+    /**
+     * Clock sweep, it ends within {@value #MAX_FREQUENCY} + 1 turns because every pass decrements a counter.
+     */
+    private void evictOne() {
+        while (true) {
+            if (clockHand >= usedFrames) {
+                clockHand = 0;
+            }
+            int frame = clockHand++;
+            HotFrame candidate = frames[frame];
+            if (candidate == null) {
+                continue;
+            }
+            if (candidate.frequency.get() > 0) {
+                candidate.frequency.decrementAndGet();
+                continue;
+            }
+            evict(frame);
+            return;
+        }
+    }
+
+    private void evict(int frame) {
+        HotFrame hotFrame = freeFrame(frame);
+        long location = hotFrame.coldCopy;
+        if (hotFrame.dirty || location == ColdSegment.NO_LOCATION) {
+            location = coldSegment().store(hotFrame.person, location);
+            coldWrites++;
+        }
+        index.put(hotFrame.person.getId(), location);
+    }
+
+    private Person decode(byte[] record) {
+        long start = System.nanoTime();
+        Person person = ColdSegment.decode(record);
+        long elapsed = System.nanoTime() - start;
+        coldReads.increment();
+        coldReadNanos.add(elapsed);
+        maxColdReadNanos.accumulateAndGet(elapsed, Math::max);
+        return person;
+    }
+
+    private ColdSegment coldSegment() {
+        if (coldSegment == null) {
+            coldSegment = new ColdSegment(coldDirectory, INITIAL_SEGMENT_CAPACITY);
+        }
+        return coldSegment;
+    }
+
+    private void closeColdSegment() {
+        if (coldSegment == null) {
+            return;
+        }
+        try {
+            coldSegment.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            coldSegment = null;
+        }
+    }
+
+    private static boolean isHot(long ref) {
+        return ref < 0;
+    }
+
+    private static int frameOf(long ref) {
+        return (int) (-ref - 1);
+    }
+
+    private static long hotRef(int frame) {
+        return -(frame + 1L);
+    }
+
+    private static final class HotFrame {
+        private Person person;
+        private final long coldCopy;
+        private boolean dirty;
+        private final AtomicInteger frequency = new AtomicInteger(1);
+
+        private HotFrame(Person person, long coldCopy, boolean dirty) {
+            this.person = person;
+            this.coldCopy = coldCopy;
+            this.dirty = dirty;
+        }
+
+        private void touch() {
+            frequency.accumulateAndGet(1, (count, one) -> Math.min(count + one, MAX_FREQUENCY));
+        }
+    }
+}
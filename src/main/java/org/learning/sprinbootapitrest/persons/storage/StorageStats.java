@@ -0,0 +1,24 @@
+package org.learning.sprinbootapitrest.persons.storage;
+
+import lombok.Value;
+
+/**
+ * Point-in-time metrics of the tiered person storage.
+ * <p>
+ * The hit ratio only counts ID lookups, cold-read latency counts every record read back from the cold segment.
+ * Dead bytes are the cold segment blocks freed by deletes and moved records, reused before the segment grows.
+ */
+@Value
+public class StorageStats {
+    int hotCapacity;
+    int hotSize;
+    int coldSize;
+    long hotHits;
+    long coldMisses;
+    double hitRatio;
+    long coldReads;
+    double averageColdReadMicros;
+    double maxColdReadMicros;
+    long coldSegmentBytes;
+    long coldSegmentDeadBytes;
+}
@@ -1,11 +1,14 @@
 package org.learning.sprinbootapitrest.persons;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 import org.hamcrest.Matchers;
 import org.hamcrest.core.Is;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.learning.sprinbootapitrest.config.BinaryMessageConvertersConfig;
 import org.learning.sprinbootapitrest.persons.dto.PersonDTO;
 import org.learning.sprinbootapitrest.persons.dto.PersonName;
 import org.learning.sprinbootapitrest.persons.errors.PersonNotFoundException;
@@ -13,15 +16,23 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -29,6 +40,7 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(PersonController.class)
+@Import(BinaryMessageConvertersConfig.class)
 class PersonControllerTest {
 
     @Autowired
@@ -44,6 +56,11 @@ class PersonControllerTest {
     @BeforeEach
     public void setUp() {
         Mockito.when(mockPersonRepository.getAll()).thenReturn(loadPersons());
+        // JSON requests are served from the snapshot, kept in line with whatever getAll() is stubbed with
+        Mockito.when(mockPersonRepository.getAllSnapshot()).thenAnswer(invocation -> {
+            List<Person> persons = mockPersonRepository.getAll();
+            return PersonsSnapshot.of(1, persons.size(), objectMapper.writeValueAsBytes(persons));
+        });
     }
 
     @Test
@@ -66,6 +83,147 @@ class PersonControllerTest {
                 .andReturn();
     }
 
+    @Test
+    void itShouldGetAllRecordsAsCborWhenAskedFor() throws Exception {
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons")
+                .accept(MediaType.APPLICATION_CBOR);
+
+        MvcResult result = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        Person[] persons = new ObjectMapper(new CBORFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), Person[].class);
+        assertThat(persons).containsExactlyElementsOf(loadPersons());
+    }
+
+    @Test
+    void itShouldGetSmallerBodiesAsCborAndSmileThanAsJson() throws Exception {
+        int jsonSize = bodySize(MediaType.APPLICATION_JSON);
+        int cborSize = bodySize(MediaType.APPLICATION_CBOR);
+        int smileSize = bodySize(new MediaType("application", "x-jackson-smile"));
+
+        assertThat(cborSize).isLessThan(jsonSize);
+        assertThat(smileSize).isLessThan(jsonSize);
+    }
+
+    @Test
+    void itShouldDefaultToJsonWhenAnyMediaTypeIsAccepted() throws Exception {
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons")
+                .accept(MediaType.ALL);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn();
+    }
+
+    @Test
+    void itShouldServeTheGzippedSnapshotWhenCompressionIsAccepted() throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(loadPersons());
+        doReturn(PersonsSnapshot.of(1, 4, json)).when(mockPersonRepository).getAllSnapshot();
+
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+        MvcResult result = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(body.readAllBytes()).isEqualTo(json);
+        }
+        verify(mockPersonRepository, never()).getAll();
+    }
+
+    @Test
+    void itShouldServeTheJsonSnapshotWithoutReserializingWhenNoCompressionIsAccepted() throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(loadPersons());
+        doReturn(PersonsSnapshot.of(1, 4, json)).when(mockPersonRepository).getAllSnapshot();
+
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons")
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(json))
+                .andReturn();
+
+        verify(mockPersonRepository, never()).getAll();
+    }
+
+    @Test
+    void itShouldNotCompressWithACodingRefusedWithAZeroQuality() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/persons").header(HttpHeaders.ACCEPT_ENCODING, "gzip;Q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+
+        mvc.perform(MockMvcRequestBuilders.get("/persons").header(HttpHeaders.ACCEPT_ENCODING, "gzip; q = 0, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "deflate"));
+    }
+
+    @Test
+    void itShouldNotServeTheJsonSnapshotWhenABinaryEncodingIsAsked() throws Exception {
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons")
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        verify(mockPersonRepository, never()).getAllSnapshot();
+    }
+
+    @Test
+    void itShouldGetOnlyTheRequestedFieldsOfAllRecords() throws Exception {
+        String expectedResponse = "[" +
+                "{id:1,name:Laura}," +
+                "{id:2,name:Mariano}," +
+                "{id:3,name:Paopalo}," +
+                "{id:4,name:Yamoto}]";
+
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons")
+                .param("fields", "name,id")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().json(expectedResponse, true))
+                .andReturn();
+    }
+
+    @Test
+    void itShouldRejectUnknownFields() throws Exception {
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons")
+                .param("fields", "name,salary")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status", Is.is("BAD_REQUEST")))
+                .andExpect(content().string(Matchers.containsString("name,salary")))
+                .andReturn();
+    }
+
     @Test
     void itShouldGetNoContentWhenNoPersonIsInTheList() throws Exception {
         when(mockPersonRepository.getAll()).thenReturn(Collections.emptyList());
@@ -125,6 +283,44 @@ class PersonControllerTest {
     }
 
 
+    @Test
+    void itShouldFindOnlyTheRequestedFieldsOfAPersonByItsId() throws Exception {
+        when(mockPersonRepository.findOptionalById(1))
+                .thenReturn(Optional.of(new Person(1, "Laura", 30)));
+
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons/{id}", 1)
+                .param("fields", "age")
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().json("{age:30}", true))
+                .andReturn();
+
+        verify(mockPersonRepository, never()).findById(1);
+    }
+
+    @Test
+    void itShouldFindAPersonByItsIdAsSmileWhenAskedFor() throws Exception {
+        MediaType smile = new MediaType("application", "x-jackson-smile");
+        when(mockPersonRepository.findById(1))
+                .thenReturn(new PersonDTO("Laura", 30));
+
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons/{id}", 1)
+                .accept(smile);
+
+        MvcResult result = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(smile))
+                .andReturn();
+
+        PersonDTO person = new ObjectMapper(new SmileFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), PersonDTO.class);
+        assertEquals(new PersonDTO("Laura", 30), person);
+    }
+
     @Test
     void itShouldNotFindAPersonByNonMatchingId() throws Exception {
         when(mockPersonRepository.findById(100))
@@ -140,6 +336,7 @@ class PersonControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(result -> assertTrue(result.getResolvedException() instanceof PersonNotFoundException))
                 .andExpect(result -> assertEquals(exceptionMessage, result.getResolvedException().getMessage()))
+                .andExpect(jsonPath("$.dateTime", Matchers.matchesPattern("\\d{2}-\\d{2}-\\d{4} \\d{2}:\\d{2}:\\d{2}")))
                 .andReturn();
     }
 
@@ -294,6 +491,20 @@ class PersonControllerTest {
                 .andReturn();
     }
 
+    private int bodySize(MediaType mediaType) throws Exception {
+        RequestBuilder request = MockMvcRequestBuilders
+                .get("/persons")
+                .accept(mediaType);
+
+        return mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(mediaType))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray()
+                .length;
+    }
+
     private List<Person> loadPersons() {
         return List.of(new Person(1, "Laura", 30),
                 new Person(2, "Mariano", 21),
@@ -0,0 +1,50 @@
+package org.learning.sprinbootapitrest.persons;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Body size and encoding throughput of a large person list as JSON, CBOR and Smile.
+ * <p>
+ * Run with {@code mvn test -Dtest=PersonEncodingBenchmarkTest -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PersonEncodingBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(PersonEncodingBenchmarkTest.class);
+    private static final int PERSONS = 10_000;
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 1_000;
+
+    @Test
+    void itShouldMeasureSizeAndThroughputOfEachEncoding() throws Exception {
+        List<Person> persons = IntStream.rangeClosed(1, PERSONS)
+                .mapToObj(id -> new Person(id, "Person number " + id, id % 100))
+                .toList();
+
+        measure("JSON", new ObjectMapper().writer(), persons);
+        measure("CBOR", new ObjectMapper(new CBORFactory()).writer(), persons);
+        measure("Smile", new ObjectMapper(new SmileFactory()).writer(), persons);
+    }
+
+    private static void measure(String encoding, ObjectWriter writer, List<Person> persons) throws Exception {
+        int size = writer.writeValueAsBytes(persons).length;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            writer.writeValueAsBytes(persons);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            writer.writeValueAsBytes(persons);
+        }
+        double listsPerSecond = MEASURED_ITERATIONS / ((System.nanoTime() - start) / 1e9);
+        log.info("{}: {} bytes for {} persons, {} lists/s", encoding, size, persons.size(), Math.round(listsPerSecond));
+    }
+}
@@ -0,0 +1,95 @@
+package org.learning.sprinbootapitrest.persons;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.learning.sprinbootapitrest.persons.errors.ErrorApi;
+import org.learning.sprinbootapitrest.persons.errors.PersonNotFoundException;
+import org.learning.sprinbootapitrest.persons.handlers.PersonExceptionHandlers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 404 throughput of the current error pipeline against a copy of the original one
+ * (stack-traced exception with a formatted message, builder-made ErrorApi, LocalDateTime.now() and
+ * a pattern formatted per response). Both controllers throw straight away, so only the error path differs.
+ * <p>
+ * Run with {@code mvn test -Dtest=PersonNotFoundBenchmarkTest -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PersonNotFoundBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(PersonNotFoundBenchmarkTest.class);
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 100_000;
+
+    @Test
+    void itShouldMeasureNotFoundThroughputAgainstTheBaselinePipeline() throws Exception {
+        MockMvc baseline = MockMvcBuilders.standaloneSetup(new BaselineNotFoundController()).build();
+        MockMvc current = MockMvcBuilders.standaloneSetup(new CurrentNotFoundController()).build();
+
+        measure(baseline, WARMUP_ITERATIONS);
+        measure(current, WARMUP_ITERATIONS);
+        double baselineThroughput = measure(baseline, MEASURED_ITERATIONS);
+        double currentThroughput = measure(current, MEASURED_ITERATIONS);
+
+        log.info("404 throughput: baseline {} req/s, current {} req/s ({}x)",
+                Math.round(baselineThroughput), Math.round(currentThroughput),
+                "%.2f".formatted(currentThroughput / baselineThroughput));
+    }
+
+    private static double measure(MockMvc mvc, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            mvc.perform(get("/persons/{id}", 1_000 + i)).andExpect(status().isNotFound());
+        }
+        return iterations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    @RestController
+    static class CurrentNotFoundController extends PersonExceptionHandlers {
+        @GetMapping("persons/{id}")
+        public ErrorApi getPerson(@PathVariable int id) {
+            throw new PersonNotFoundException(id);
+        }
+    }
+
+    @RestController
+    static class BaselineNotFoundController {
+        @GetMapping("persons/{id}")
+        public ErrorApi getPerson(@PathVariable int id) {
+            throw new BaselinePersonNotFoundException(id);
+        }
+
+        @ExceptionHandler(BaselinePersonNotFoundException.class)
+        public ResponseEntity<BaselineErrorApi> handlerPersonNotFound(BaselinePersonNotFoundException exception) {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body(new BaselineErrorApi(HttpStatus.NOT_FOUND, LocalDateTime.now(), exception.getMessage()));
+        }
+    }
+
+    static class BaselinePersonNotFoundException extends RuntimeException {
+        BaselinePersonNotFoundException(int id) {
+            super("Person with id '%d' cannot be found! It may not exists.".formatted(id));
+        }
+    }
+
+    record BaselineErrorApi(HttpStatus status,
+                            @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy hh:mm:ss")
+                            LocalDateTime dateTime,
+                            String message) {
+    }
+}
@@ -1,13 +1,25 @@
 package org.learning.sprinbootapitrest.persons;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.learning.sprinbootapitrest.persons.dto.PersonDTO;
 import org.learning.sprinbootapitrest.persons.errors.PersonNotFoundException;
+import org.learning.sprinbootapitrest.persons.storage.PersonTable;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -186,6 +198,73 @@ class PersonRepositoryTest {
         assertTrue(actualMessage.contains(expectedMessage));
     }
 
+    @Test
+    @DisplayName("It should signal a missing person without capturing a stack trace")
+    void itShouldThrowAStacklessExceptionWhenPersonIsNotFound() {
+        final int nonExistingPersonId = 404;
+        //when:
+        assertNotNull(this.personRepository);
+        PersonNotFoundException exception = assertThrows(
+                PersonNotFoundException.class, () -> personRepository.findById(nonExistingPersonId)
+        );
+        //then:
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertEquals(nonExistingPersonId, exception.getId());
+    }
+
+    @Test
+    @DisplayName("It should reuse the collection snapshot until the list changes")
+    void itShouldReuseTheSnapshotUntilTheListChanges() throws IOException {
+        //given:
+        assertNotNull(this.personRepository);
+        PersonsSnapshot firstSnapshot = personRepository.getAllSnapshot();
+        //when:
+        PersonsSnapshot sameSnapshot = personRepository.getAllSnapshot();
+        personRepository.save(new PersonDTO("Felipe", 70));
+        PersonsSnapshot rebuiltSnapshot = personRepository.getAllSnapshot();
+        //then:
+        assertSame(firstSnapshot, sameSnapshot);
+        assertNotSame(firstSnapshot, rebuiltSnapshot);
+        assertEquals(5, rebuiltSnapshot.getSize());
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(rebuiltSnapshot.getGzip()))) {
+            assertThat(body.readAllBytes()).isEqualTo(rebuiltSnapshot.getJson());
+        }
+    }
+
+    @Test
+    @DisplayName("It should not hand a lookup started before a mutation to callers arriving after it")
+    void itShouldSeeAMutationThatLandsWhileALookupIsInFlight() throws Exception {
+        //given:
+        AtomicBoolean blockNextScan = new AtomicBoolean();
+        CountDownLatch scanStarted = new CountDownLatch(1);
+        CountDownLatch releaseScan = new CountDownLatch(1);
+        PersonTable personTable = new PersonTable(Integer.MAX_VALUE, Path.of(System.getProperty("java.io.tmpdir"))) {
+            @Override
+            public List<Person> scan(Predicate<Person> filter) {
+                if (blockNextScan.compareAndSet(true, false)) {
+                    scanStarted.countDown();
+                    awaitQuietly(releaseScan);
+                }
+                return super.scan(filter);
+            }
+        };
+        PersonRepository repository = new PersonRepository(new ObjectMapper(), personTable);
+        blockNextScan.set(true);
+        CompletableFuture<List<PersonDTO>> lookupInFlight =
+                CompletableFuture.supplyAsync(() -> repository.findByName("Laura"));
+        assertTrue(scanStarted.await(5, TimeUnit.SECONDS));
+        //when:
+        repository.save(new PersonDTO("Laura", 99), 1);
+        // joining the blocked lookup would time out here instead of hanging the test
+        List<PersonDTO> lookupAfterMutation = CompletableFuture
+                .supplyAsync(() -> repository.findByName("laura"))
+                .get(5, TimeUnit.SECONDS);
+        releaseScan.countDown();
+        //then:
+        assertThat(lookupAfterMutation).containsExactly(new PersonDTO("Laura", 99));
+        assertThat(lookupInFlight.get(5, TimeUnit.SECONDS)).hasSize(1);
+    }
+
     @Test
     void itShouldGetAllThePersonsAsAList() {
         final int TOTAL_INIT_SIZE = 4;
@@ -196,4 +275,12 @@ class PersonRepositoryTest {
         assertThat(this.personRepository.getAll()).hasAtLeastOneElementOfType(Person.class);
         assertThat(this.personRepository.getAll()).hasSize(TOTAL_INIT_SIZE);
     }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package org.learning.sprinbootapitrest.persons;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final CountDownLatch followerJoined = new CountDownLatch(1);
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>() {
+        @Override
+        void onJoin(String key) {
+            followerJoined.countDown();
+        }
+    };
+
+    @Test
+    @DisplayName("It should share one in-flight computation between identical concurrent calls")
+    void itShouldShareOneComputationBetweenConcurrentCalls() throws Exception {
+        //given:
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        //when:
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("laura", () -> {
+                    loads.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "Laura";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("laura", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                }));
+        assertTrue(followerJoined.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        //then:
+        assertEquals("Laura", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("Laura", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("It should start a new computation once the previous one has finished")
+    void itShouldNotCacheFinishedComputations() {
+        //when:
+        String first = singleFlight.execute("laura", () -> "first");
+        String second = singleFlight.execute("laura", () -> "second");
+        //then:
+        assertThat(first).isEqualTo("first");
+        assertThat(second).isEqualTo("second");
+    }
+
+    @Test
+    @DisplayName("It should rethrow the exception of the computation to the caller")
+    void itShouldRethrowTheComputationException() {
+        assertThrows(IllegalArgumentException.class, () -> singleFlight.execute("laura", () -> {
+            throw new IllegalArgumentException("boom");
+        }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.learning.sprinbootapitrest.persons.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Requests are nested inside the filter chain of another one, so they arrive while the outer one is in flight.
+ */
+class PersonAdmissionFilterTest {
+
+    private final PersonAdmissionFilter filter = new PersonAdmissionFilter(
+            new ObjectMapper().findAndRegisterModules(), 1, 1, 1, 1_000, 1_000, 5_000, 0.75, 2);
+
+    @Test
+    @DisplayName("It should reject a request over the limit with a 503 and Retry-After")
+    void itShouldRejectRequestsOverTheLimit() throws Exception {
+        //given:
+        MockHttpServletResponse outerResponse = new MockHttpServletResponse();
+        MockHttpServletResponse nestedResponse = new MockHttpServletResponse();
+        //when:
+        filter.doFilter(request("GET", "/persons/1"), outerResponse, (request, response) ->
+                filter.doFilter(request("GET", "/persons/2"), nestedResponse, new MockFilterChain()));
+        //then:
+        assertEquals(200, outerResponse.getStatus());
+        assertEquals(503, nestedResponse.getStatus());
+        assertEquals("2", nestedResponse.getHeader(HttpHeaders.RETRY_AFTER));
+        assertThat(nestedResponse.getContentAsString()).contains("SERVICE_UNAVAILABLE");
+    }
+
+    @Test
+    @DisplayName("It should shed scans while writes are busy but keep admitting point reads")
+    void itShouldGivePriorityToWritesAndPointReadsOverScans() throws Exception {
+        //given:
+        MockHttpServletResponse scanResponse = new MockHttpServletResponse();
+        MockHttpServletResponse nameSearchResponse = new MockHttpServletResponse();
+        MockHttpServletResponse pointReadResponse = new MockHttpServletResponse();
+        MockHttpServletResponse statsResponse = new MockHttpServletResponse();
+        //when:
+        filter.doFilter(request("POST", "/persons"), new MockHttpServletResponse(), (request, response) -> {
+            filter.doFilter(request("GET", "/persons"), scanResponse, new MockFilterChain());
+            filter.doFilter(request("GET", "/persons/name/laura"), nameSearchResponse, new MockFilterChain());
+            filter.doFilter(request("GET", "/persons/2"), pointReadResponse, new MockFilterChain());
+            filter.doFilter(request("GET", "/persons/storage/stats"), statsResponse, new MockFilterChain());
+        });
+        //then:
+        assertEquals(503, scanResponse.getStatus());
+        assertEquals(503, nameSearchResponse.getStatus());
+        assertEquals(200, pointReadResponse.getStatus());
+        assertEquals(200, statsResponse.getStatus());
+    }
+
+    @Test
+    @DisplayName("It should not let path parameters take a full-list scan past admission control")
+    void itShouldShedScansWithPathParameters() throws Exception {
+        //given:
+        MockHttpServletResponse scanResponse = new MockHttpServletResponse();
+        //when:
+        filter.doFilter(request("POST", "/persons"), new MockHttpServletResponse(), (request, response) ->
+                filter.doFilter(request("GET", "/persons;jsessionid=x"), scanResponse, new MockFilterChain()));
+        //then:
+        assertEquals(503, scanResponse.getStatus());
+    }
+
+    @Test
+    @DisplayName("It should leave requests outside /persons alone")
+    void itShouldNotFilterOtherPaths() throws Exception {
+        //given:
+        MockHttpServletResponse otherResponse = new MockHttpServletResponse();
+        //when:
+        filter.doFilter(request("GET", "/persons/1"), new MockHttpServletResponse(), (request, response) ->
+                filter.doFilter(request("GET", "/error"), otherResponse, new MockFilterChain()));
+        //then:
+        assertEquals(200, otherResponse.getStatus());
+    }
+
+    @Test
+    @DisplayName("It should back off the limit on slow requests and grow it back on fast ones")
+    void itShouldAdaptTheLimitToLatency() {
+        //given:
+        AimdLimiter limiter = new AimdLimiter(10, 1, 20, 1_000, 0.5);
+        //when:
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+        limiter.release(2_000);
+        //then:
+        assertEquals(5, limiter.getLimit());
+        //when:
+        for (int i = 0; i < 9; i++) {
+            limiter.release(10);
+        }
+        //then:
+        assertThat(limiter.getLimit()).isGreaterThan(5);
+    }
+
+    @Test
+    @DisplayName("It should back off once for slow requests that were in flight together")
+    void itShouldBackOffOncePerRoundTrip() {
+        //given:
+        AimdLimiter limiter = new AimdLimiter(10, 1, 20, 1_000, 0.5);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+        //when: all started at 0 and end slow around 2_000
+        for (int i = 0; i < 10; i++) {
+            limiter.release(2_000 + i, 2_000 + i);
+        }
+        //then:
+        assertEquals(5, limiter.getLimit());
+        //when: started after the backoff and also slow
+        limiter.tryAcquire();
+        limiter.release(2_000, 5_000);
+        //then:
+        assertEquals(2, limiter.getLimit());
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        return new MockHttpServletRequest(method, uri);
+    }
+}
@@ -0,0 +1,65 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.learning.sprinbootapitrest.persons.Person;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationProtocolTest {
+
+    @Test
+    @DisplayName("It should read back the snapshots and mutations it writes")
+    void itShouldRoundTripFrames() throws IOException {
+        //given:
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ReplicationSnapshot snapshot = new ReplicationSnapshot(3, List.of(new Person(1, "Laura", 30), new Person(2, null, null)));
+        PersonMutation mutation = PersonMutation.delete(4, 1);
+        //when:
+        ReplicationProtocol.writeSnapshot(out, snapshot);
+        ReplicationProtocol.writeMutation(out, mutation);
+        DataInputStream in = input(bytes);
+        //then:
+        assertEquals(snapshot, ReplicationProtocol.readFrame(in));
+        assertEquals(mutation, ReplicationProtocol.readFrame(in));
+    }
+
+    @Test
+    @DisplayName("It should report an unknown mutation type as a corrupted stream")
+    void itShouldRejectAnUnknownMutationType() throws IOException {
+        //given:
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('M');
+        out.writeLong(1);
+        out.writeByte(42);
+        //then:
+        assertThrows(StreamCorruptedException.class, () -> ReplicationProtocol.readFrame(input(bytes)));
+    }
+
+    @Test
+    @DisplayName("It should report a negative snapshot size as a corrupted stream")
+    void itShouldRejectANegativeSnapshotSize() throws IOException {
+        //given:
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('S');
+        out.writeLong(1);
+        out.writeInt(-1);
+        //then:
+        assertThrows(StreamCorruptedException.class, () -> ReplicationProtocol.readFrame(input(bytes)));
+    }
+
+    private static DataInputStream input(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
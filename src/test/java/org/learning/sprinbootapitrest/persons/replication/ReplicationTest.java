@@ -0,0 +1,193 @@
+package org.learning.sprinbootapitrest.persons.replication;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.learning.sprinbootapitrest.persons.PersonRepository;
+import org.learning.sprinbootapitrest.persons.dto.PersonDTO;
+import org.learning.sprinbootapitrest.persons.dto.PersonName;
+import org.learning.sprinbootapitrest.persons.errors.ReadOnlyReplicaException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Leader and follower on localhost, each with its own repository as if they were two App instances.
+ * The leader waits for acknowledgements, so a write is visible on the follower as soon as it returns.
+ */
+class ReplicationTest {
+
+    private PersonRepository leaderRepository;
+    private PersonRepository followerRepository;
+    private ReplicationLeader leader;
+    private ReplicationFollower follower;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        leaderRepository = new PersonRepository();
+        followerRepository = new PersonRepository();
+        // written before the follower connects, so it can only arrive through the snapshot
+        leaderRepository.save(new PersonDTO("Felipe", 70));
+
+        leader = new ReplicationLeader(leaderRepository, InetAddress.getLoopbackAddress(), 0,
+                ReplicationProperties.Consistency.ACK, Duration.ofSeconds(5), 1_000);
+        leader.start();
+        follower = new ReplicationFollower(followerRepository, "localhost", leader.getPort(), Duration.ofMillis(100));
+        follower.start();
+        awaitFollowers(leader, 1);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        follower.close();
+        leader.close();
+        followerRepository.close();
+        leaderRepository.close();
+    }
+
+    @Test
+    @DisplayName("It should catch a new follower up from the snapshot and then stream new writes")
+    void itShouldCatchUpFromTheSnapshotAndStreamNewWrites() {
+        //when:
+        leaderRepository.save(new PersonDTO("Lucia", 22));
+        //then:
+        assertEquals(new PersonDTO("Felipe", 70), followerRepository.findById(5));
+        assertEquals(new PersonDTO("Lucia", 22), followerRepository.findById(6));
+        assertEquals(leaderRepository.getAll(), followerRepository.getAll());
+        assertEquals(leaderRepository.getSequence(), followerRepository.getSequence());
+    }
+
+    @Test
+    @DisplayName("It should replicate updates, name patches and deletes in order")
+    void itShouldReplicateUpdatesAndDeletes() {
+        //when:
+        leaderRepository.save(new PersonDTO("MY-NEW-NAME", 123), 1);
+        leaderRepository.save(new PersonName("Mauricio"), 2);
+        leaderRepository.deleteById(3);
+        //then:
+        assertEquals(new PersonDTO("MY-NEW-NAME", 123), followerRepository.findById(1));
+        assertEquals(new PersonDTO("Mauricio", 21), followerRepository.findById(2));
+        assertThat(followerRepository.findOptionalById(3)).isEmpty();
+        assertEquals(leaderRepository.getAll(), followerRepository.getAll());
+    }
+
+    @Test
+    @DisplayName("It should replicate names longer than 65535 encoded bytes")
+    void itShouldReplicateVeryLongNames() {
+        //given:
+        String longName = "\u00e9".repeat(40_000);
+        //when:
+        leaderRepository.save(new PersonDTO(longName, 40));
+        //then:
+        assertEquals(new PersonDTO(longName, 40), followerRepository.findById(6));
+    }
+
+    @Test
+    @DisplayName("It should resync from a fresh snapshot when applying a mutation fails")
+    void itShouldResyncAfterAFailedApply() throws Exception {
+        //given:
+        AtomicBoolean failNextApply = new AtomicBoolean(true);
+        PersonRepository flakyRepository = new PersonRepository() {
+            @Override
+            public void apply(PersonMutation mutation) {
+                if (failNextApply.compareAndSet(true, false)) {
+                    throw new IllegalStateException("Simulated failure applying " + mutation);
+                }
+                super.apply(mutation);
+            }
+        };
+        ReplicationFollower flakyFollower =
+                new ReplicationFollower(flakyRepository, "localhost", leader.getPort(), Duration.ofMillis(100));
+        flakyFollower.start();
+        try {
+            awaitFollowers(leader, 2);
+            //when:
+            leaderRepository.save(new PersonDTO("Lucia", 22));
+            //then:
+            awaitSequence(flakyRepository, leaderRepository.getSequence());
+            assertEquals(leaderRepository.getAll(), flakyRepository.getAll());
+        } finally {
+            flakyFollower.close();
+            flakyRepository.close();
+        }
+    }
+
+    @Test
+    @DisplayName("It should wait a single ack timeout for a write however many followers are stalled")
+    void itShouldShareTheAckTimeoutBetweenStalledFollowers() throws Exception {
+        //given:
+        PersonRepository repository = new PersonRepository();
+        ReplicationLeader impatientLeader = new ReplicationLeader(repository, InetAddress.getLoopbackAddress(), 0,
+                ReplicationProperties.Consistency.ACK, Duration.ofSeconds(1), 1_000);
+        impatientLeader.start();
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        // connected but never acknowledging anything
+        try (Socket first = new Socket(loopback, impatientLeader.getPort());
+             Socket second = new Socket(loopback, impatientLeader.getPort());
+             Socket third = new Socket(loopback, impatientLeader.getPort())) {
+            awaitFollowers(impatientLeader, 3);
+            //when:
+            long start = System.nanoTime();
+            repository.save(new PersonDTO("Lucia", 22));
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            //then:
+            assertThat(elapsed).isBetween(Duration.ofMillis(900), Duration.ofMillis(2_500));
+        } finally {
+            impatientLeader.close();
+            repository.close();
+        }
+    }
+
+    @Test
+    @DisplayName("It should disconnect a follower whose queue of pending mutations is full")
+    void itShouldDisconnectAFollowerThatFallsTooFarBehind() throws Exception {
+        //given:
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (ServerSocket server = new ServerSocket(0, 1, loopback);
+             Socket follower = new Socket(loopback, server.getLocalPort());
+             Socket accepted = server.accept()) {
+            // never started, so nothing drains the queue
+            ReplicaSession session = new ReplicaSession(accepted, 2);
+            //when:
+            session.enqueue(PersonMutation.delete(1, 1));
+            session.enqueue(PersonMutation.delete(2, 2));
+            assertFalse(session.isClosed());
+            session.enqueue(PersonMutation.delete(3, 3));
+            //then:
+            assertTrue(session.isClosed());
+            assertEquals(-1, follower.getInputStream().read());
+        }
+    }
+
+    @Test
+    @DisplayName("It should refuse writes on a follower")
+    void itShouldRefuseWritesOnAFollower() {
+        assertThrows(ReadOnlyReplicaException.class, () -> followerRepository.save(new PersonDTO("Lucia", 22)));
+        assertThrows(ReadOnlyReplicaException.class, () -> followerRepository.deleteById(1));
+        assertThat(followerRepository.findOptionalById(1)).isPresent();
+    }
+
+    private static void awaitSequence(PersonRepository repository, long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (repository.getSequence() < sequence) {
+            assertTrue(System.nanoTime() < deadline, "Follower did not resync in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitFollowers(ReplicationLeader leader, int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (leader.getFollowerCount() < followers) {
+            assertTrue(System.nanoTime() < deadline, "Follower did not connect in time");
+            Thread.sleep(10);
+        }
+    }
+}
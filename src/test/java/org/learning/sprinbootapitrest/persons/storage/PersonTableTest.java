@@ -0,0 +1,178 @@
+package org.learning.sprinbootapitrest.persons.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.learning.sprinbootapitrest.persons.Person;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonTableTest {
+
+    @TempDir
+    Path coldDirectory;
+
+    private PersonTable personTable;
+
+    @BeforeEach
+    public void setup() {
+        personTable = new PersonTable(2, coldDirectory);
+        personTable.put(new Person(1, "Laura", 30));
+        personTable.put(new Person(2, "Mariano", 21));
+        personTable.put(new Person(3, "Paopalo", 19));
+        personTable.put(new Person(4, "Yamoto", 60));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        personTable.close();
+    }
+
+    @Test
+    @DisplayName("It should keep only the hot capacity on heap and spill the rest to the cold segment")
+    void itShouldSpillOverflowToTheColdSegment() throws IOException {
+        //when:
+        StorageStats stats = personTable.stats();
+        //then:
+        assertEquals(2, stats.getHotSize());
+        assertEquals(2, stats.getColdSize());
+        assertThat(stats.getColdSegmentBytes()).isPositive();
+        try (Stream<Path> files = Files.list(coldDirectory)) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    @Test
+    @DisplayName("It should read every person back in insertion order whatever its tier")
+    void itShouldScanBothTiersInInsertionOrder() {
+        //when:
+        List<Person> persons = personTable.scan(p -> true);
+        //then:
+        assertThat(persons).containsExactly(
+                new Person(1, "Laura", 30),
+                new Person(2, "Mariano", 21),
+                new Person(3, "Paopalo", 19),
+                new Person(4, "Yamoto", 60));
+    }
+
+    @Test
+    @DisplayName("It should promote a cold person on lookup and count it as a miss")
+    void itShouldPromoteAColdPersonOnLookup() {
+        //when:
+        Optional<Person> first = personTable.get(1);
+        Optional<Person> second = personTable.get(1);
+        //then:
+        assertEquals(Optional.of(new Person(1, "Laura", 30)), first);
+        assertSame(first.get(), second.get());
+        StorageStats stats = personTable.stats();
+        assertEquals(1, stats.getColdMisses());
+        assertEquals(1, stats.getHotHits());
+        assertEquals(0.5, stats.getHitRatio());
+        assertEquals(2, stats.getHotSize());
+    }
+
+    @Test
+    @DisplayName("It should keep changes made to a person after it has been evicted")
+    void itShouldKeepUpdatesAcrossEvictions() {
+        //given:
+        assertThat(personTable.update(1, p -> p.setName("A-MUCH-LONGER-NAME-THAN-BEFORE"))).isPresent();
+        //when:
+        personTable.get(2);
+        personTable.get(3);
+        personTable.get(4);
+        //then:
+        assertEquals(Optional.of(new Person(1, "A-MUCH-LONGER-NAME-THAN-BEFORE", 30)), personTable.get(1));
+    }
+
+    @Test
+    @DisplayName("It should give the next consecutive ID to inserted persons")
+    void itShouldInsertWithTheNextConsecutiveId() {
+        //when:
+        Person inserted = personTable.insert(id -> new Person(id, "Felipe", 70));
+        //then:
+        assertEquals(5, inserted.getId());
+        assertTrue(personTable.remove(5));
+        assertFalse(personTable.remove(5));
+        assertEquals(4, personTable.size());
+    }
+
+    @Test
+    @DisplayName("It should give the ID of a deleted person again when it was the highest one")
+    void itShouldReuseTheHighestIdOnceDeleted() {
+        //given:
+        assertTrue(personTable.remove(4));
+        //when:
+        Person inserted = personTable.insert(id -> new Person(id, "Felipe", 70));
+        //then:
+        assertEquals(4, inserted.getId());
+    }
+
+    @Test
+    @DisplayName("It should only count ID lookups in the hit ratio")
+    void itShouldNotCountUpdatesAsLookups() {
+        //when:
+        personTable.update(1, p -> p.setAge(31));
+        personTable.update(4, p -> p.setAge(61));
+        //then:
+        StorageStats stats = personTable.stats();
+        assertEquals(0, stats.getHotHits());
+        assertEquals(0, stats.getColdMisses());
+    }
+
+    @Test
+    @DisplayName("It should report the cold bytes freed by deletes and reuse them before growing the segment")
+    void itShouldReuseTheColdBytesFreedByDeletes() {
+        //given:
+        long segmentBytes = personTable.stats().getColdSegmentBytes();
+        //when:
+        assertTrue(personTable.remove(1));
+        StorageStats afterDelete = personTable.stats();
+        personTable.put(new Person(5, "Felipe", 70));
+        StorageStats afterEviction = personTable.stats();
+        //then:
+        assertThat(afterDelete.getColdSegmentDeadBytes()).isPositive();
+        assertEquals(0, afterEviction.getColdSegmentDeadBytes());
+        assertEquals(segmentBytes, afterEviction.getColdSegmentBytes());
+    }
+
+    @Test
+    @DisplayName("It should keep serving lookups and scans while other threads update persons")
+    void itShouldServeConcurrentReadsAndUpdates() throws Exception {
+        //given:
+        for (int id = 5; id <= 200; id++) {
+            personTable.put(new Person(id, "Person-" + id, id));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            //when:
+            List<Future<?>> tasks = List.of(
+                    executor.submit(() -> IntStream.rangeClosed(5, 200).forEach(id -> personTable.update(id, p -> p.setAge(id + 1)))),
+                    executor.submit(() -> IntStream.rangeClosed(5, 200).forEach(id -> assertEquals("Person-" + id, personTable.get(id).orElseThrow().getName()))),
+                    executor.submit(() -> IntStream.range(0, 20).forEach(i -> assertEquals(200, personTable.scan(p -> true).size()))),
+                    executor.submit(() -> IntStream.range(0, 20).forEach(i -> assertThat(personTable.scan(p -> p.getId() == 7)).hasSize(1))));
+            for (Future<?> task : tasks) {
+                task.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        //then:
+        assertEquals(Optional.of(new Person(200, "Person-200", 201)), personTable.get(200));
+        assertEquals(2, personTable.stats().getHotSize());
+    }
+}